@@ -0,0 +1,61 @@
+package study.querydsl.benchmark;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.entity.Member;
+
+/**
+ * 페치 조인과 지연 로딩으로 Member.team 에 접근하는 비용 비교.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FetchJoinBenchmark extends SeededDatabase {
+
+  private static final int ROWS = 1_000;
+
+  private JPAQueryFactory queryFactory;
+
+  @Override
+  protected void prepare() {
+    queryFactory = bean(JPAQueryFactory.class);
+  }
+
+  @Benchmark
+  public int lazy() {
+    return inTransaction(() -> teamNameLength(queryFactory
+        .selectFrom(member)
+        .limit(ROWS)
+        .fetch()));
+  }
+
+  @Benchmark
+  public int fetchJoin() {
+    return inTransaction(() -> teamNameLength(queryFactory
+        .selectFrom(member)
+        .join(member.team, team).fetchJoin()
+        .limit(ROWS)
+        .fetch()));
+  }
+
+  private int teamNameLength(List<Member> members) {
+    int length = 0;
+    for (Member m : members) {
+      length += m.getTeam().getName().length();
+    }
+    return length;
+  }
+}
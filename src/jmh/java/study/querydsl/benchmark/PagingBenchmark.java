@@ -0,0 +1,70 @@
+package study.querydsl.benchmark;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.CursorSlice;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * 페이지 깊이에 따른 offset 페이징과 키셋 페이징 비용 비교.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PagingBenchmark extends SeededDatabase {
+
+  private static final int SIZE = 20;
+
+  @Param({"0", "10", "100", "400"})
+  public int page;
+
+  private MemberRepository memberRepository;
+  private MemberSearchCondition condition;
+  private PageRequest pageRequest;
+  private String cursor;
+
+  @Override
+  protected void prepare() {
+    memberRepository = bean(MemberRepository.class);
+    condition = new MemberSearchCondition();
+    pageRequest = PageRequest.of(page, SIZE);
+    if (page > 0) {
+      Tuple last = bean(JPAQueryFactory.class)
+          .select(member.age, member.id)
+          .from(member)
+          .orderBy(member.age.asc(), member.id.asc())
+          .offset((long) page * SIZE - 1)
+          .limit(1)
+          .fetchOne();
+      cursor = new MemberCursor(last.get(member.age), last.get(member.id)).encode();
+    }
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> offset() {
+    return memberRepository.searchPageComplex(condition, pageRequest);
+  }
+
+  @Benchmark
+  public CursorSlice<MemberTeamDto> keyset() {
+    return memberRepository.searchByCursor(condition, cursor, SIZE);
+  }
+}
@@ -0,0 +1,79 @@
+package study.querydsl.benchmark;
+
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.QMemberDto;
+
+/**
+ * 프로젝션 방식별(setter, 필드, 생성자, @QueryProjection) DTO 조회 비용 비교.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionBenchmark extends SeededDatabase {
+
+  private static final int ROWS = 1_000;
+
+  private JPAQueryFactory queryFactory;
+
+  @Override
+  protected void prepare() {
+    queryFactory = bean(JPAQueryFactory.class);
+  }
+
+  @Benchmark
+  public List<MemberDto> bean() {
+    return queryFactory
+        .select(Projections.bean(MemberDto.class,
+            member.username,
+            member.age))
+        .from(member)
+        .limit(ROWS)
+        .fetch();
+  }
+
+  @Benchmark
+  public List<MemberDto> fields() {
+    return queryFactory
+        .select(Projections.fields(MemberDto.class,
+            member.username,
+            member.age))
+        .from(member)
+        .limit(ROWS)
+        .fetch();
+  }
+
+  @Benchmark
+  public List<MemberDto> constructor() {
+    return queryFactory
+        .select(Projections.constructor(MemberDto.class,
+            member.username,
+            member.age))
+        .from(member)
+        .limit(ROWS)
+        .fetch();
+  }
+
+  @Benchmark
+  public List<MemberDto> queryProjection() {
+    return queryFactory
+        .select(new QMemberDto(member.username, member.age))
+        .from(member)
+        .limit(ROWS)
+        .fetch();
+  }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+/**
+ * 조건 모양별 JPQL 템플릿 캐시를 쓰는 search 와 요청마다 BooleanBuilder 로 쿼리를 새로 만드는 searchByBuilder 비교.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark extends SeededDatabase {
+
+  private MemberJpaRepository memberJpaRepository;
+  private MemberSearchCondition condition;
+
+  @Override
+  protected void prepare() {
+    memberJpaRepository = bean(MemberJpaRepository.class);
+    condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(30);
+    condition.setAgeLoe(40);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> search() {
+    return memberJpaRepository.search(condition);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> searchByBuilder() {
+    return memberJpaRepository.searchByBuilder(condition);
+  }
+}
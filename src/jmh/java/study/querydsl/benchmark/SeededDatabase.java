@@ -0,0 +1,78 @@
+package study.querydsl.benchmark;
+
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.seed.MemberDataSeeder;
+import study.querydsl.seed.SeedProperties;
+import study.querydsl.seed.SeedProperties.AgeDistribution;
+import study.querydsl.seed.SeedProperties.TeamDistribution;
+
+/**
+ * 벤치마크 공통 상태. 인메모리 H2 로 애플리케이션 컨텍스트를 띄우고 데이터를 미리 채워둔다.
+ */
+@State(Scope.Benchmark)
+public abstract class SeededDatabase {
+
+  private static final int TEAMS = 10;
+
+  @Param("10000")
+  public int members;
+
+  private ConfigurableApplicationContext context;
+
+  @Setup(Level.Trial)
+  public void startContext() {
+    context = new SpringApplicationBuilder(QuerydslApplication.class)
+        .web(WebApplicationType.NONE)
+        .run("--spring.profiles.active=bench",
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--spring.jpa.properties.hibernate.format_sql=false",
+            "--spring.jpa.properties.hibernate.use_sql_comments=false",
+            "--logging.level.org.hibernate.SQL=warn",
+            "--decorator.datasource.p6spy.enable-logging=false");
+    seed();
+    prepare();
+  }
+
+  @TearDown(Level.Trial)
+  public void closeContext() {
+    context.close();
+  }
+
+  /**
+   * 데이터가 채워진 뒤 벤치마크별로 필요한 빈과 파라미터를 준비한다.
+   */
+  protected void prepare() {
+  }
+
+  protected <T> T bean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  protected <T> T inTransaction(Supplier<T> work) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(
+        bean(PlatformTransactionManager.class));
+    transactionTemplate.setReadOnly(true);
+    return transactionTemplate.execute(status -> work.get());
+  }
+
+  private void seed() {
+    SeedProperties properties = new SeedProperties();
+    properties.setTeams(TEAMS);
+    properties.setMembers(members);
+    properties.setAgeDistribution(AgeDistribution.UNIFORM);
+    properties.setTeamDistribution(TeamDistribution.UNIFORM);
+    bean(MemberDataSeeder.class).seed(properties);
+  }
+}
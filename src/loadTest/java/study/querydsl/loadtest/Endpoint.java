@@ -0,0 +1,66 @@
+package study.querydsl.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * 부하를 줄 엔드포인트와 요청마다 무작위로 고르는 검색 조건.
+ * <p>
+ * /v1/members 는 페이징이 없으므로 결과가 작은 조건(username, teamName + 좁은 나이 범위, 접두어)만 쓴다.
+ */
+enum Endpoint {
+
+  V1("/v1/members", false),
+  V2("/v2/members", true),
+  V3("/v3/members", true);
+
+  private static final int MAX_AGE = 99;
+  private static final int PAGES = 10;
+
+  private final String path;
+  private final boolean paged;
+
+  Endpoint(String path, boolean paged) {
+    this.path = path;
+    this.paged = paged;
+  }
+
+  String label() {
+    return name().toLowerCase();
+  }
+
+  String request(SplittableRandom random, LoadTestOptions options) {
+    StringBuilder query = new StringBuilder(path).append('?');
+    int age = random.nextInt(MAX_AGE + 1);
+    switch (random.nextInt(paged ? 5 : 3)) {
+      case 0:
+        query.append("username=member").append(random.nextLong(options.members));
+        break;
+      case 1:
+        query.append("teamName=").append(teamName(random.nextInt(options.teams)))
+            .append("&ageGoe=").append(age).append("&ageLoe=").append(age + 2);
+        break;
+      case 2:
+        query.append("usernameStartsWith=member")
+            .append(random.nextLong(Math.max(options.members / 100, 1)));
+        break;
+      case 3:
+        query.append("ageGoe=").append(age).append("&ageLoe=").append(age + 10);
+        break;
+      default:
+        query.append("teamName=").append(teamName(random.nextInt(options.teams)));
+        break;
+    }
+    if (paged) {
+      query.append("&page=").append(random.nextInt(PAGES))
+          .append("&size=").append(options.pageSizes[random.nextInt(options.pageSizes.length)]);
+    }
+    return query.toString();
+  }
+
+  /**
+   * MemberDataSeeder 와 같은 팀 이름.
+   */
+  private static String teamName(int index) {
+    return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+  }
+}
@@ -0,0 +1,200 @@
+package study.querydsl.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+/**
+ * 엔드포인트별 지연 시간(마이크로초) 히스토그램.
+ * <p>
+ * {@link #flushInterval()} 마다 구간 히스토그램을 엔드포인트 이름을 태그로 HdrHistogram 로그에 쓰고
+ * 전체 히스토그램에 더한다. 요약은 밀리초 단위로 results.properties 에 쓰며, 같은 형식의 파일을 기준선으로 쓴다.
+ */
+final class LoadReport implements AutoCloseable {
+
+  static final String ALL = "all";
+
+  private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+  private final Map<String, Histogram> totals = new LinkedHashMap<>();
+  private final Map<String, LongAdder> errors = new LinkedHashMap<>();
+  private final PrintStream logStream;
+  private final HistogramLogWriter logWriter;
+  private long startNanos;
+  private long endNanos;
+
+  LoadReport(Iterable<Endpoint> endpoints, Path reportDir) throws IOException {
+    for (Endpoint endpoint : endpoints) {
+      recorders.put(endpoint.label(), new Recorder(HIGHEST_MICROS, 3));
+      totals.put(endpoint.label(), new Histogram(HIGHEST_MICROS, 3));
+      errors.put(endpoint.label(), new LongAdder());
+    }
+    Files.createDirectories(reportDir);
+    logStream = new PrintStream(Files.newOutputStream(reportDir.resolve("latency.hlog")), false,
+        StandardCharsets.UTF_8);
+    logWriter = new HistogramLogWriter(logStream);
+  }
+
+  void start() {
+    startNanos = System.nanoTime();
+    long now = System.currentTimeMillis();
+    logWriter.outputLogFormatVersion();
+    logWriter.outputStartTime(now);
+    logWriter.setBaseTime(now);
+    logWriter.outputLegend();
+    // 워밍업 동안 쌓인 값은 버린다.
+    recorders.values().forEach(Recorder::reset);
+    errors.values().forEach(LongAdder::reset);
+  }
+
+  void record(Endpoint endpoint, long micros, boolean success) {
+    recorders.get(endpoint.label()).recordValue(Math.min(micros, HIGHEST_MICROS));
+    if (!success) {
+      errors.get(endpoint.label()).increment();
+    }
+  }
+
+  synchronized void flushInterval() {
+    for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+      Histogram interval = entry.getValue().getIntervalHistogram();
+      interval.setTag(entry.getKey());
+      logWriter.outputIntervalHistogram(interval);
+      totals.get(entry.getKey()).add(interval);
+    }
+  }
+
+  synchronized void stop() {
+    flushInterval();
+    endNanos = System.nanoTime();
+  }
+
+  /**
+   * 엔드포인트별 + 전체(all) 요약. 키는 "v1.p99" 형식.
+   */
+  synchronized Properties summary() {
+    double seconds = (endNanos - startNanos) / 1e9;
+    Properties summary = new Properties();
+    Histogram all = new Histogram(HIGHEST_MICROS, 3);
+    long allErrors = 0;
+    for (Map.Entry<String, Histogram> entry : totals.entrySet()) {
+      long endpointErrors = errors.get(entry.getKey()).sum();
+      put(summary, entry.getKey(), entry.getValue(), endpointErrors, seconds);
+      all.add(entry.getValue());
+      allErrors += endpointErrors;
+    }
+    put(summary, ALL, all, allErrors, seconds);
+    return summary;
+  }
+
+  static void print(Properties summary, PrintStream out) {
+    out.printf(Locale.ROOT, "%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n", "endpoint", "requests",
+        "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+    for (String name : names(summary)) {
+      out.printf(Locale.ROOT, "%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n", name,
+          summary.getProperty(name + ".requests"), summary.getProperty(name + ".errors"),
+          summary.getProperty(name + ".throughput"), summary.getProperty(name + ".p50"),
+          summary.getProperty(name + ".p95"), summary.getProperty(name + ".p99"),
+          summary.getProperty(name + ".p999"), summary.getProperty(name + ".max"));
+    }
+  }
+
+  /**
+   * p99 가 기준선보다 tolerance 비율 이상 크거나, 처리량이 tolerance 비율 이상 작으면 회귀로 본다.
+   *
+   * @return 회귀 목록. 기준선에 없는 엔드포인트는 비교하지 않는다.
+   */
+  static List<String> regressions(Properties summary, Properties baseline, double tolerance) {
+    List<String> regressions = new ArrayList<>();
+    for (String name : names(summary)) {
+      String baseP99 = baseline.getProperty(name + ".p99");
+      if (baseP99 != null) {
+        double p99 = Double.parseDouble(summary.getProperty(name + ".p99"));
+        if (p99 > Double.parseDouble(baseP99) * (1 + tolerance)) {
+          regressions.add(String.format(Locale.ROOT, "%s p99 %.3f ms > baseline %s ms", name, p99,
+              baseP99));
+        }
+      }
+      String baseThroughput = baseline.getProperty(name + ".throughput");
+      if (baseThroughput != null) {
+        double throughput = Double.parseDouble(summary.getProperty(name + ".throughput"));
+        if (throughput < Double.parseDouble(baseThroughput) * (1 - tolerance)) {
+          regressions.add(String.format(Locale.ROOT, "%s throughput %.1f req/s < baseline %s",
+              name, throughput, baseThroughput));
+        }
+      }
+    }
+    return regressions;
+  }
+
+  static Properties load(Path file) throws IOException {
+    Properties properties = new Properties();
+    if (Files.exists(file)) {
+      try (Reader reader = Files.newBufferedReader(file)) {
+        properties.load(reader);
+      }
+    }
+    return properties;
+  }
+
+  static void store(Properties properties, Path file, String comment) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    try (Writer writer = Files.newBufferedWriter(file)) {
+      properties.store(writer, comment);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    logStream.close();
+  }
+
+  private static List<String> names(Properties summary) {
+    List<String> names = new ArrayList<>();
+    for (String key : summary.stringPropertyNames()) {
+      if (key.endsWith(".requests")) {
+        names.add(key.substring(0, key.length() - ".requests".length()));
+      }
+    }
+    names.sort((a, b) -> ALL.equals(a) ? 1 : ALL.equals(b) ? -1 : a.compareTo(b));
+    return names;
+  }
+
+  private static void put(Properties summary, String name, Histogram histogram, long errors,
+      double seconds) {
+    long requests = histogram.getTotalCount();
+    summary.setProperty(name + ".requests", Long.toString(requests));
+    summary.setProperty(name + ".throughput", format(seconds > 0 ? requests / seconds : 0, 1));
+    summary.setProperty(name + ".p50", millis(histogram.getValueAtPercentile(50)));
+    summary.setProperty(name + ".p95", millis(histogram.getValueAtPercentile(95)));
+    summary.setProperty(name + ".p99", millis(histogram.getValueAtPercentile(99)));
+    summary.setProperty(name + ".p999", millis(histogram.getValueAtPercentile(99.9)));
+    summary.setProperty(name + ".max", millis(histogram.getMaxValue()));
+    summary.setProperty(name + ".errors", Long.toString(errors));
+  }
+
+  private static String millis(long micros) {
+    return format(micros / 1000.0, 3);
+  }
+
+  private static String format(double value, int fraction) {
+    return String.format(Locale.ROOT, "%." + fraction + "f", value);
+  }
+}
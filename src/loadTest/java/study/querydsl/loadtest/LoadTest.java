@@ -0,0 +1,173 @@
+package study.querydsl.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.repository.UsernameIndex;
+import study.querydsl.seed.MemberDataSeeder;
+import study.querydsl.seed.SeedProperties;
+import study.querydsl.seed.SeedProperties.AgeDistribution;
+import study.querydsl.seed.SeedProperties.TeamDistribution;
+
+/**
+ * /v1, /v2, /v3/members HTTP 부하 테스트({@code ./gradlew loadTest}).
+ * <p>
+ * 인메모리 H2 로 애플리케이션을 임의 포트에 띄워 데이터를 채운 뒤, clients 개의 클라이언트가 각자 응답을 받자마자
+ * 다음 요청을 보낸다(closed loop). warmup 동안의 결과는 버리고 duration 동안의 지연 시간을 기록한다.
+ * <p>
+ * reportDir 에 HdrHistogram 로그(latency.hlog)와 요약(results.properties)을 쓰고, p99 나 처리량이 baseline 보다
+ * tolerance 이상 나빠졌을 때 실패한다. baseline 파일이 없어도 실패한다. updateBaseline=true 면 비교하지 않고 이번
+ * 결과를 기준선으로 저장한다.
+ */
+public class LoadTest {
+
+  public static void main(String[] args) throws Exception {
+    LoadTestOptions options = LoadTestOptions.fromSystemProperties();
+    List<String> failures;
+    ConfigurableApplicationContext context = start(options);
+    try {
+      int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+      failures = run(options, URI.create("http://localhost:" + port));
+    } finally {
+      context.close();
+    }
+    if (!failures.isEmpty()) {
+      failures.forEach(failure -> System.err.println("FAILED " + failure));
+      System.exit(1);
+    }
+  }
+
+  private static ConfigurableApplicationContext start(LoadTestOptions options) {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(
+        QuerydslApplication.class)
+        .run("--spring.profiles.active=loadtest",
+            "--server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+            "--spring.jpa.properties.hibernate.format_sql=false",
+            "--spring.jpa.properties.hibernate.use_sql_comments=false",
+            "--logging.level.org.hibernate.SQL=warn",
+            "--decorator.datasource.p6spy.enable-logging=false");
+    SeedProperties seed = new SeedProperties();
+    seed.setTeams(options.teams);
+    seed.setMembers(options.members);
+    seed.setAgeDistribution(AgeDistribution.UNIFORM);
+    seed.setTeamDistribution(TeamDistribution.UNIFORM);
+    seed.setRandomSeed(options.randomSeed);
+    context.getBean(MemberDataSeeder.class).seed(seed);
+    // seed 는 벌크 insert 라 username 인덱스를 다시 만들어야 접두어 검색에 쓰인다.
+    context.getBean(UsernameIndex.class).rebuild();
+    return context;
+  }
+
+  private static List<String> run(LoadTestOptions options, URI baseUri) throws Exception {
+    // 스레드 풀은 데몬 스레드가 아니므로 실패해도 닫아야 JVM 이 끝난다.
+    ExecutorService httpExecutor = Executors.newFixedThreadPool(options.clients);
+    ExecutorService clients = Executors.newFixedThreadPool(options.clients);
+    AtomicBoolean running = new AtomicBoolean(true);
+    try {
+      HttpClient client = HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(5))
+          .executor(httpExecutor)
+          .build();
+      return run(options, baseUri, client, clients, running);
+    } finally {
+      running.set(false);
+      clients.shutdownNow();
+      httpExecutor.shutdownNow();
+    }
+  }
+
+  private static List<String> run(LoadTestOptions options, URI baseUri, HttpClient client,
+      ExecutorService clients, AtomicBoolean running) throws Exception {
+    List<Endpoint> weighted = new ArrayList<>();
+    for (Map.Entry<Endpoint, Integer> entry : options.mix.entrySet()) {
+      for (int i = 0; i < entry.getValue(); i++) {
+        weighted.add(entry.getKey());
+      }
+    }
+
+    Properties summary;
+    try (LoadReport report = new LoadReport(options.mix.keySet(), options.reportDir)) {
+      for (int i = 0; i < options.clients; i++) {
+        SplittableRandom random = new SplittableRandom(options.randomSeed + i);
+        clients.execute(() -> {
+          while (running.get()) {
+            Endpoint endpoint = weighted.get(random.nextInt(weighted.size()));
+            send(client, baseUri, endpoint, endpoint.request(random, options), report);
+          }
+        });
+      }
+
+      System.out.printf("warming up %d clients for %s%n", options.clients, options.warmup);
+      TimeUnit.MILLISECONDS.sleep(options.warmup.toMillis());
+      report.start();
+      ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+      ticker.scheduleAtFixedRate(report::flushInterval, 1, 1, TimeUnit.SECONDS);
+      System.out.printf("measuring for %s%n", options.duration);
+      try {
+        TimeUnit.MILLISECONDS.sleep(options.duration.toMillis());
+      } finally {
+        ticker.shutdownNow();
+      }
+      report.stop();
+
+      running.set(false);
+      clients.shutdown();
+      clients.awaitTermination(1, TimeUnit.MINUTES);
+      summary = report.summary();
+    }
+
+    LoadReport.print(summary, System.out);
+    LoadReport.store(summary, options.reportDir.resolve("results.properties"),
+        options.clients + " clients, " + options.duration + ", mix " + options.mix);
+    if (options.updateBaseline) {
+      LoadReport.store(summary, options.baseline, "load test baseline");
+      System.out.printf("baseline written to %s%n", options.baseline);
+      return List.of();
+    }
+    Properties baseline = LoadReport.load(options.baseline);
+    if (baseline.isEmpty()) {
+      return List.of("no baseline at " + options.baseline
+          + ", run with -PloadTest.updateBaseline=true to store one");
+    }
+    return LoadReport.regressions(summary, baseline, options.tolerance);
+  }
+
+  private static void send(HttpClient client, URI baseUri, Endpoint endpoint, String path,
+      LoadReport report) {
+    HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+        .timeout(Duration.ofSeconds(30))
+        .GET()
+        .build();
+    long start = System.nanoTime();
+    boolean success;
+    try {
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      success = response.statusCode() / 100 == 2;
+    } catch (IOException e) {
+      success = false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    report.record(endpoint, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), success);
+  }
+}
@@ -0,0 +1,70 @@
+package study.querydsl.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 부하 테스트 설정. gradle 에서 -PloadTest.clients=32 처럼 넘기면 같은 이름의 시스템 프로퍼티로 전달된다.
+ */
+final class LoadTestOptions {
+
+  final int clients;
+  final Duration warmup;
+  final Duration duration;
+  final long members;
+  final int teams;
+  final Map<Endpoint, Integer> mix;
+  final int[] pageSizes;
+  final long randomSeed;
+  final Path reportDir;
+  final Path baseline;
+  final double tolerance;
+  final boolean updateBaseline;
+
+  private LoadTestOptions() {
+    clients = Integer.parseInt(property("clients", "16"));
+    warmup = Duration.parse("PT" + property("warmup", "10s"));
+    duration = Duration.parse("PT" + property("duration", "30s"));
+    members = Long.parseLong(property("members", "100000"));
+    teams = Integer.parseInt(property("teams", "10"));
+    mix = parseMix(property("mix", "v1:1,v2:2,v3:2"));
+    pageSizes = Arrays.stream(property("pageSizes", "10,20,50").split(","))
+        .map(String::trim)
+        .mapToInt(Integer::parseInt)
+        .toArray();
+    randomSeed = Long.parseLong(property("randomSeed", "42"));
+    reportDir = Path.of(property("reportDir", "build/reports/loadtest"));
+    baseline = Path.of(property("baseline", "src/loadTest/baseline.properties"));
+    tolerance = Double.parseDouble(property("tolerance", "0.2"));
+    updateBaseline = Boolean.parseBoolean(property("updateBaseline", "false"));
+    if (clients <= 0 || pageSizes.length == 0 || mix.isEmpty()) {
+      throw new IllegalArgumentException("clients, pageSizes and mix must not be empty!");
+    }
+  }
+
+  static LoadTestOptions fromSystemProperties() {
+    return new LoadTestOptions();
+  }
+
+  private static String property(String name, String defaultValue) {
+    return System.getProperty("loadTest." + name, defaultValue);
+  }
+
+  /**
+   * "v1:1,v2:2,v3:2" 처럼 엔드포인트별 가중치.
+   */
+  private static Map<Endpoint, Integer> parseMix(String value) {
+    Map<Endpoint, Integer> mix = new LinkedHashMap<>();
+    for (String entry : value.split(",")) {
+      String[] pair = entry.trim().split(":");
+      int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+      if (weight > 0) {
+        mix.put(Endpoint.valueOf(pair[0].trim().toUpperCase()), weight);
+      }
+    }
+    return mix;
+  }
+}
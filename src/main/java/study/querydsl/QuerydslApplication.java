@@ -2,11 +2,18 @@ package study.querydsl;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import javax.persistence.EntityManager;
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.boot.SpringApplication;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.querydsl.repository.support.EntityChangeNotifier;
+import study.querydsl.repository.support.RepositoryJPAQueryFactory;
 
 @SpringBootApplication
+@EnableScheduling
 public class QuerydslApplication {
 
   public static void main(String[] args) {
@@ -14,7 +21,20 @@ public class QuerydslApplication {
   }
 
   @Bean
-  JPAQueryFactory jpaQueryFactory(EntityManager em) {
-    return new JPAQueryFactory(em);
+  JPAQueryFactory jpaQueryFactory(EntityManager em, EntityChangeNotifier notifier) {
+    return new RepositoryJPAQueryFactory(em, notifier);
+  }
+
+  /**
+   * querydsl.n-plus-one.batch-fetch-size 를 켜면 초기화되지 않은 프록시와 컬렉션을 IN 쿼리로 묶어서 로딩한다.
+   */
+  @Bean
+  HibernatePropertiesCustomizer batchFetchCustomizer(
+      @Value("${querydsl.n-plus-one.batch-fetch-size:0}") int batchFetchSize) {
+    return properties -> {
+      if (batchFetchSize > 1) {
+        properties.put(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE, batchFetchSize);
+      }
+    };
   }
 }
@@ -0,0 +1,20 @@
+package study.querydsl.controller;
+
+import java.util.concurrent.RejectedExecutionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * {@link QueryDeadlines} 의 조회 스레드와 대기열이 모두 차 있다. 503 으로 응답한다.
+ * <p>
+ * Spring MVC 는 비동기 작업 제출이 {@link RejectedExecutionException} 으로 거절되었을 때만 예외를 응답으로
+ * 처리하므로 그 하위 클래스로 둔다.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AsyncQueryRejectedException extends RejectedExecutionException {
+
+  public AsyncQueryRejectedException(int threads, int queueCapacity) {
+    super("Async query executor is full (" + threads + " threads, " + queueCapacity
+        + " queued)");
+  }
+}
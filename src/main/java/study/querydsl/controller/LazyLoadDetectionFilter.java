@@ -0,0 +1,64 @@
+package study.querydsl.controller;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import study.querydsl.repository.support.LazyLoadDetector;
+
+/**
+ * 요청 단위로 지연 로딩을 세고 N+1 로 의심되는 호출 위치를 경고 로그로 남긴다.
+ * <p>
+ * 비동기 요청({@link QueryDeadlines#async})은 조회가 다른 스레드에서 실행되므로
+ * {@link CallableProcessingInterceptor} 로 그 스레드에서도 센다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LazyLoadDetectionFilter extends OncePerRequestFilter implements
+    CallableProcessingInterceptor {
+
+  private final LazyLoadDetector lazyLoadDetector;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    lazyLoadDetector.start();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      warn(request, lazyLoadDetector.stop());
+    }
+  }
+
+  @Override
+  public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+    lazyLoadDetector.start();
+  }
+
+  @Override
+  public <T> void postProcess(NativeWebRequest request, Callable<T> task,
+      Object concurrentResult) {
+    HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+    if (servletRequest != null) {
+      warn(servletRequest, lazyLoadDetector.stop());
+    } else {
+      lazyLoadDetector.stop();
+    }
+  }
+
+  private void warn(HttpServletRequest request, LazyLoadDetector.Report report) {
+    for (String suspect : report.getSuspects()) {
+      log.warn("N+1 suspected in {} {}: {}", request.getMethod(), request.getRequestURI(),
+          suspect);
+    }
+  }
+}
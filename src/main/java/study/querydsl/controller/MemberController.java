@@ -1,11 +1,34 @@
 package study.querydsl.controller;
 
+import static org.springframework.util.StringUtils.hasText;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import study.querydsl.dto.CountMode;
+import study.querydsl.dto.CursorSlice;
+import study.querydsl.dto.InvalidRequestParameterException;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
@@ -17,19 +40,150 @@ public class MemberController {
 
   private final MemberJpaRepository memberJpaRepository;
   private final MemberRepository memberRepository;
+  private final ObjectMapper objectMapper;
+  private final QueryDeadlines deadlines;
+
+  @Value("${spring.data.web.pageable.max-page-size:2000}")
+  private int maxPageSize;
 
+  /**
+   * fields= 가 있으면 고른 속성만 담은 객체를 돌려준다. 없으면 MemberTeamDto 의 모든 속성을 쓴다.
+   */
   @GetMapping("/v1/members")
-  public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-    return memberJpaRepository.search(condition);
+  public WebAsyncTask<List<?>> searchMemberV1(MemberSearchCondition condition,
+      @RequestParam(required = false) String fields) {
+    Set<MemberField> selected = hasText(fields) ? MemberField.parse(fields) : null;
+    return deadlines.async("v1-members", () -> {
+      if (selected != null) {
+        return memberJpaRepository.search(condition, selected).stream()
+            .map(dto -> MemberField.select(dto, selected))
+            .collect(Collectors.toList());
+      }
+      return memberJpaRepository.search(condition);
+    });
+  }
+
+  /**
+   * /v1/members 와 같은 검색 결과를 NDJSON(한 줄에 한 건)으로 조회되는 대로 내보낸다.
+   */
+  @GetMapping("/v1/members/export")
+  public void exportMemberV1(MemberSearchCondition condition, HttpServletResponse response)
+      throws IOException {
+    response.setContentType("application/x-ndjson");
+    response.setCharacterEncoding("UTF-8");
+    ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class);
+    deadlines.stream("v1-members-export", () -> {
+      try (OutputStream out = new BufferedOutputStream(response.getOutputStream())) {
+        memberJpaRepository.streamSearch(condition, dto -> {
+          try {
+            out.write(writer.writeValueAsBytes(dto));
+            out.write('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+    });
   }
 
   @GetMapping("/v2/members")
-  public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-    return memberRepository.searchPageSimple(condition, pageable);
+  public WebAsyncTask<Page<?>> searchMemberV2(MemberSearchCondition condition,
+      Pageable pageable, @RequestParam(required = false) String fields) {
+    Set<MemberField> selected = hasText(fields) ? MemberField.parse(fields) : null;
+    return deadlines.async("v2-members", () -> {
+      if (selected != null) {
+        return memberRepository.searchPage(condition, pageable, selected)
+            .map(dto -> MemberField.select(dto, selected));
+      }
+      return memberRepository.searchPageSimple(condition, pageable);
+    });
   }
 
   @GetMapping("/v3/members")
-  public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-    return memberRepository.searchPageComplex(condition, pageable);
+  public WebAsyncTask<Page<?>> searchMemberV3(MemberSearchCondition condition,
+      Pageable pageable, @RequestParam(required = false) String fields,
+      @RequestParam(defaultValue = "EXACT") CountMode count) {
+    Set<MemberField> selected = hasText(fields) ? MemberField.parse(fields) : null;
+    return deadlines.async("v3-members", () -> {
+      if (selected != null) {
+        return memberRepository.searchPage(condition, pageable, selected, count)
+            .map(dto -> MemberField.select(dto, selected));
+      }
+      return memberRepository.searchPageComplex(condition, pageable, count);
+    });
+  }
+
+  /**
+   * /v3/members?stream 은 Page 와 같은 JSON 을 조회 커서에서 한 행씩 JsonGenerator 로 바로 쓴다.
+   * content 를 먼저 쓰고 나머지 필드는 그 뒤에 쓰므로, count 쿼리는 content 를 다 쓴 다음 필요할 때만 실행한다.
+   */
+  @GetMapping(value = "/v3/members", params = "stream")
+  public void streamMemberV3(MemberSearchCondition condition, Pageable pageable,
+      HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setCharacterEncoding("UTF-8");
+    deadlines.stream("v3-members-stream", () -> {
+      try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream(),
+          JsonEncoding.UTF8)) {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("content");
+        long rows = memberJpaRepository.streamSearch(condition, pageable.getOffset(),
+            pageable.getPageSize(), dto -> {
+              try {
+                generator.writeObject(dto);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+        generator.writeEndArray();
+
+        long total = totalElements(pageable, rows, () -> memberJpaRepository.count(condition));
+        int totalPages = (int) Math.ceil((double) total / pageable.getPageSize());
+        generator.writeObjectField("pageable", pageable);
+        // /v3/members 의 EstimatedPage 와 같은 필드. 스트리밍은 항상 정확히 센다.
+        generator.writeBooleanField("totalExact", true);
+        generator.writeBooleanField("last", pageable.getPageNumber() + 1 >= totalPages);
+        generator.writeNumberField("totalPages", totalPages);
+        generator.writeNumberField("totalElements", total);
+        generator.writeNumberField("size", pageable.getPageSize());
+        generator.writeNumberField("number", pageable.getPageNumber());
+        generator.writeObjectField("sort", pageable.getSort());
+        generator.writeBooleanField("first", pageable.getPageNumber() == 0);
+        generator.writeNumberField("numberOfElements", rows);
+        generator.writeBooleanField("empty", rows == 0);
+        generator.writeEndObject();
+      }
+    });
+  }
+
+  /**
+   * PageableExecutionUtils 와 같은 규칙으로 count 쿼리를 생략한다.
+   */
+  static long totalElements(Pageable pageable, long rows, LongSupplier count) {
+    if (pageable.getOffset() == 0) {
+      return pageable.getPageSize() > rows ? rows : count.getAsLong();
+    }
+    if (rows != 0 && pageable.getPageSize() > rows) {
+      return pageable.getOffset() + rows;
+    }
+    return count.getAsLong();
+  }
+
+  /**
+   * size 는 /v2, /v3 의 페이지 크기처럼 max-page-size 로 줄인다. 잘못된 커서나 1 보다 작은 size 는 400 이다.
+   */
+  @GetMapping("/v4/members")
+  public WebAsyncTask<CursorSlice<MemberTeamDto>> searchMemberV4(
+      MemberSearchCondition condition, @RequestParam(required = false) String after,
+      @RequestParam(defaultValue = "20") int size) {
+    if (size < 1) {
+      throw new InvalidRequestParameterException("Size must be greater than zero: " + size);
+    }
+    if (hasText(after)) {
+      MemberCursor.decode(after);
+    }
+    int limited = Math.min(size, maxPageSize);
+    return deadlines.async("v4-members",
+        () -> memberRepository.searchByCursor(condition, after, limited));
   }
 }
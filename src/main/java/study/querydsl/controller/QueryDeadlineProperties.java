@@ -0,0 +1,30 @@
+package study.querydsl.controller;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 엔드포인트별 쿼리 기한. 키는 {@link MemberController} 의 엔드포인트 이름(v1-members 등)이고,
+ * 0 이면 기한 없이 요청이 끊겼을 때의 취소만 한다.
+ * <p>
+ * pool-size 와 queue-capacity 는 비동기 조회 전용 스레드 풀의 크기다. pool-size 가 0 이거나 커넥션 풀보다 크면
+ * 커넥션 풀 크기를 쓴다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.deadline")
+public class QueryDeadlineProperties {
+
+  private Duration defaultTimeout = Duration.ofSeconds(10);
+  private Map<String, Duration> endpoints = new HashMap<>();
+  private int poolSize = 0;
+  private int queueCapacity = 50;
+
+  public Duration timeoutOf(String endpoint) {
+    return endpoints.getOrDefault(endpoint, defaultTimeout);
+  }
+}
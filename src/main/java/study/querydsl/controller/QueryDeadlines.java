@@ -0,0 +1,182 @@
+package study.querydsl.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import study.querydsl.repository.support.ConcurrencyLimiter;
+import study.querydsl.repository.support.QueryDeadline;
+
+/**
+ * 컨트롤러 요청을 {@link QueryDeadline} 아래에서 실행한다.
+ * <p>
+ * {@link #async} 는 조회를 비동기 요청으로 실행해서, 기한이 지나거나(503) 클라이언트가 연결을 끊으면
+ * 컨테이너 콜백에서 실행 중인 JDBC 문장을 취소한다. 응답을 직접 쓰는 스트리밍 요청은 {@link #stream} 으로
+ * 요청 스레드에서 실행하고, 응답 쓰기가 실패하면 연결이 끊긴 것으로 보고 취소한다.
+ * <p>
+ * 비동기 조회는 Boot 의 기본 applicationTaskExecutor(무제한 대기열)가 아니라 커넥션 풀 크기에 맞춘 전용 스레드 풀
+ * (query-async-)에서 실행한다. 스레드와 대기열(queue-capacity)이 모두 차면 {@link AsyncQueryRejectedException}
+ * 으로 바로 503 을 돌려주고 query.async.rejected 카운터로 센다.
+ * <p>
+ * 기한 초과와 취소는 query.deadline 카운터(endpoint, outcome=timeout|cancelled)로 센다.
+ * <p>
+ * 두 경우 모두 {@link ConcurrencyLimiter} 의 허가를 받은 뒤 실행하므로, 한도를 넘는 요청은 기한 안에서만
+ * 대기열에서 기다리고 그 뒤에는 503 으로 거절된다. 비동기 조회는 요청 스레드에서 허가를 받고 실행기에 넘기므로
+ * 실행기 대기열에서 기다리는 요청도 한도에 들어간다. 실행되지 못하고 끝난 요청의 허가는 완료 콜백에서 반납한다.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(QueryDeadlineProperties.class)
+public class QueryDeadlines implements DisposableBean {
+
+  private final QueryDeadlineProperties properties;
+  private final MeterRegistry registry;
+  private final ConcurrencyLimiter limiter;
+  private final ThreadPoolTaskExecutor executor;
+
+  public QueryDeadlines(QueryDeadlineProperties properties, MeterRegistry registry,
+      ConcurrencyLimiter limiter,
+      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+    this.properties = properties;
+    this.registry = registry;
+    this.limiter = limiter;
+    int poolSize = properties.getPoolSize();
+    int threads = Math.max(poolSize <= 0 ? connectionPoolSize
+        : Math.min(poolSize, connectionPoolSize), 1);
+    int queueCapacity = properties.getQueueCapacity();
+    this.executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("query-async-");
+    executor.setRejectedExecutionHandler((task, pool) -> {
+      registry.counter("query.async.rejected").increment();
+      throw new AsyncQueryRejectedException(threads, queueCapacity);
+    });
+    executor.initialize();
+  }
+
+  public <T> WebAsyncTask<T> async(String endpoint, Callable<T> query) {
+    Duration timeout = properties.timeoutOf(endpoint);
+    QueryDeadline deadline = QueryDeadline.after(endpoint, timeout);
+    ConcurrencyLimiter.Permit permit;
+    try (QueryDeadline.Scope scope = deadline.bind()) {
+      permit = limiter.acquire(endpoint);
+    }
+    WebAsyncTask<T> task = new WebAsyncTask<>(
+        timeout.isZero() || timeout.isNegative() ? null : timeout.toMillis(),
+        executor,
+        () -> {
+          try (QueryDeadline.Scope scope = deadline.bind()) {
+            return permit.execute(query::call);
+          } catch (Exception e) {
+            recordFailure(deadline, e);
+            throw e;
+          } catch (Error e) {
+            throw e;
+          } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
+          }
+        });
+    task.onTimeout(cancel(deadline, "timeout"));
+    task.onError(cancel(deadline, "cancelled"));
+    task.onCompletion(() -> permit.abandon(deadline.isExpired()));
+    return task;
+  }
+
+  public void stream(String endpoint, StreamingQuery query) throws IOException {
+    QueryDeadline deadline = QueryDeadline.after(endpoint, properties.timeoutOf(endpoint));
+    try (QueryDeadline.Scope scope = deadline.bind()) {
+      // 허가를 쥔 채 응답을 쓰므로 걸린 시간은 클라이언트 속도에 좌우된다. 한도 조정에 쓰지 않는다.
+      limiter.executeUnsampled(endpoint, () -> {
+        query.run();
+        return null;
+      });
+    } catch (IOException | RuntimeException e) {
+      if (isCause(e, IOException.class) && !deadline.isCancelled()) {
+        deadline.cancel();
+        record(deadline, "cancelled");
+      } else {
+        recordFailure(deadline, e);
+      }
+      throw e;
+    } catch (Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new UndeclaredThrowableException(e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  /**
+   * 컨테이너 콜백에서 취소하고, 응답은 기본 처리(시간 초과는 503)에 맡긴다.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> Callable<T> cancel(QueryDeadline deadline, String outcome) {
+    return () -> {
+      if (!deadline.isCancelled()) {
+        log.debug("cancelling queries of {} ({})", deadline.getName(), outcome);
+        deadline.cancel();
+        record(deadline, outcome);
+      }
+      return (T) CallableProcessingInterceptor.RESULT_NONE;
+    };
+  }
+
+  /**
+   * 이미 취소한 요청(컨테이너 콜백에서 센 경우)은 다시 세지 않는다.
+   */
+  private void recordFailure(QueryDeadline deadline, Exception e) {
+    if (deadline.isCancelled()) {
+      return;
+    }
+    if (deadline.isExpired() || isTimeout(e)) {
+      record(deadline, "timeout");
+    }
+  }
+
+  private void record(QueryDeadline deadline, String outcome) {
+    Counter.builder("query.deadline")
+        .tag("endpoint", deadline.getName())
+        .tag("outcome", outcome)
+        .register(registry)
+        .increment();
+  }
+
+  private static boolean isTimeout(Throwable e) {
+    return isCause(e, javax.persistence.QueryTimeoutException.class)
+        || isCause(e, org.springframework.dao.QueryTimeoutException.class)
+        || isCause(e, org.hibernate.QueryTimeoutException.class)
+        || isCause(e, SQLTimeoutException.class);
+  }
+
+  private static boolean isCause(Throwable e, Class<? extends Throwable> type) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (type.isInstance(cause)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @FunctionalInterface
+  public interface StreamingQuery {
+
+    void run() throws IOException;
+  }
+}
@@ -0,0 +1,55 @@
+package study.querydsl.datasource;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 방금 바뀐 데이터를 primary 에서 읽게 한다. 캐시가 무효화 직후 다시 읽을 때 쓴다.
+ * <p>
+ * 복제본은 max-lag 까지 뒤처져 있어도 선택되므로, 변경 후 max-lag 가 지나기 전의 읽기는 primary 로 보낸다.
+ * 읽기 전용 트랜잭션 안이면 이미 복제본 커넥션을 쓰고 있을 수 있어 새 쓰기 가능 트랜잭션(REQUIRES_NEW)에서 읽는다.
+ * 트랜잭션 밖이나 쓰기 트랜잭션은 원래 primary 로 가므로 그대로 읽는다.
+ */
+@Component
+public class PrimaryReads {
+
+  /**
+   * 복제본이 없을 때. 항상 그대로 읽는다.
+   */
+  public static final PrimaryReads NONE = new PrimaryReads(null, false, Duration.ZERO);
+
+  private final TransactionTemplate primaryTransaction;
+  private final long maxLagNanos;
+
+  @Autowired
+  public PrimaryReads(PlatformTransactionManager transactionManager,
+      @Value("${querydsl.replica.enabled:false}") boolean replicasEnabled,
+      @Value("${querydsl.replica.max-lag:5s}") Duration maxLag) {
+    if (replicasEnabled) {
+      this.primaryTransaction = new TransactionTemplate(transactionManager);
+      primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    } else {
+      this.primaryTransaction = null;
+    }
+    this.maxLagNanos = maxLag.toNanos();
+  }
+
+  /**
+   * @param changedAt 마지막 변경 시각(System.nanoTime). 모르면 null
+   */
+  public <T> T readSince(Long changedAt, Supplier<T> loader) {
+    if (primaryTransaction == null || changedAt == null
+        || System.nanoTime() - changedAt > maxLagNanos
+        || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return loader.get();
+    }
+    return primaryTransaction.execute(status -> loader.get());
+  }
+}
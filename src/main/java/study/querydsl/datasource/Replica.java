@@ -0,0 +1,36 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Getter;
+
+/**
+ * 복제본 하나와 지연 감시 결과.
+ */
+@Getter
+public class Replica {
+
+  private final String name;
+  private final HikariDataSource dataSource;
+  private volatile boolean healthy = true;
+  private volatile long lagMillis;
+
+  public Replica(String name, HikariDataSource dataSource) {
+    this.name = name;
+    this.dataSource = dataSource;
+  }
+
+  public int getActiveConnections() {
+    HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+    return pool == null ? 0 : pool.getActiveConnections();
+  }
+
+  void markHealthy(long lagMillis) {
+    this.lagMillis = lagMillis;
+    this.healthy = true;
+  }
+
+  void markUnhealthy() {
+    this.healthy = false;
+  }
+}
@@ -0,0 +1,72 @@
+package study.querydsl.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * 복제본마다 주기적으로 lag-query 로 복제 지연을 확인한다. 실패한 복제본은 다음 확인에 성공할 때까지 선택되지 않는다.
+ * <p>
+ * 연결 확인만으로는 뒤처진 복제본을 걸러낼 수 없으므로 lag-query 가 없으면 만들지 않는다.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements InitializingBean, DisposableBean {
+
+  private final ReplicaPool replicaPool;
+  private final ReplicaProperties properties;
+  private ScheduledExecutorService scheduler;
+
+  public ReplicaLagMonitor(ReplicaPool replicaPool, ReplicaProperties properties) {
+    Assert.hasText(properties.getLagQuery(),
+        "querydsl.replica.lag-query must be set when replicas are enabled!");
+    this.replicaPool = replicaPool;
+    this.properties = properties;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("replica-lag-");
+    threadFactory.setDaemon(true);
+    scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    long interval = properties.getCheckInterval().toMillis();
+    scheduler.scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.MILLISECONDS);
+  }
+
+  public void check() {
+    for (Replica replica : replicaPool.getReplicas()) {
+      try (Connection connection = replica.getDataSource().getConnection()) {
+        replica.markHealthy(lagMillis(connection));
+      } catch (Exception e) {
+        if (replica.isHealthy()) {
+          log.warn("replica {} unavailable, routing reads to primary", replica.getName(), e);
+        }
+        replica.markUnhealthy();
+      }
+    }
+  }
+
+  private long lagMillis(Connection connection) throws Exception {
+    try (Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery(properties.getLagQuery())) {
+      if (!rs.next()) {
+        throw new IllegalStateException("Lag query returned no rows");
+      }
+      return (long) (rs.getDouble(1) * 1000);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
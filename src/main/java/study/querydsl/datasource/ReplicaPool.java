@@ -0,0 +1,87 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.Assert;
+import study.querydsl.datasource.ReplicaProperties.Selection;
+
+/**
+ * 복제본 목록과 선택 정책. 건강하고 지연이 max-lag 이하인 복제본만 고르고, 없으면 null 을 돌려준다.
+ */
+public class ReplicaPool implements DisposableBean {
+
+  private final List<Replica> replicas;
+  private final Selection selection;
+  private final long maxLagMillis;
+  private final AtomicInteger next = new AtomicInteger();
+
+  public ReplicaPool(List<Replica> replicas, Selection selection, long maxLagMillis) {
+    Assert.notNull(selection, "Selection must not be null!");
+    this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+    this.selection = selection;
+    this.maxLagMillis = maxLagMillis;
+  }
+
+  public static ReplicaPool create(ReplicaProperties properties) {
+    List<Replica> replicas = new ArrayList<>();
+    for (ReplicaProperties.Node node : properties.getNodes()) {
+      Assert.hasText(node.getName(), "Replica name must not be empty!");
+      Assert.hasText(node.getUrl(), "Replica url must not be empty!");
+      HikariDataSource dataSource = new HikariDataSource();
+      dataSource.setPoolName("replica-" + node.getName());
+      dataSource.setJdbcUrl(node.getUrl());
+      dataSource.setUsername(node.getUsername());
+      dataSource.setPassword(node.getPassword());
+      if (node.getDriverClassName() != null) {
+        dataSource.setDriverClassName(node.getDriverClassName());
+      }
+      dataSource.setMaximumPoolSize(node.getMaximumPoolSize());
+      dataSource.setReadOnly(true);
+      replicas.add(new Replica(node.getName(), dataSource));
+    }
+    return new ReplicaPool(replicas, properties.getSelection(), properties.getMaxLag().toMillis());
+  }
+
+  public List<Replica> getReplicas() {
+    return replicas;
+  }
+
+  public Replica select() {
+    int size = replicas.size();
+    if (size == 0) {
+      return null;
+    }
+    if (selection == Selection.LEAST_LOADED) {
+      Replica selected = null;
+      for (Replica replica : replicas) {
+        if (isEligible(replica)
+            && (selected == null
+            || replica.getActiveConnections() < selected.getActiveConnections())) {
+          selected = replica;
+        }
+      }
+      return selected;
+    }
+    int start = Math.floorMod(next.getAndIncrement(), size);
+    for (int i = 0; i < size; i++) {
+      Replica replica = replicas.get((start + i) % size);
+      if (isEligible(replica)) {
+        return replica;
+      }
+    }
+    return null;
+  }
+
+  private boolean isEligible(Replica replica) {
+    return replica.isHealthy() && replica.getLagMillis() <= maxLagMillis;
+  }
+
+  @Override
+  public void destroy() {
+    replicas.forEach(replica -> replica.getDataSource().close());
+  }
+}
@@ -0,0 +1,44 @@
+package study.querydsl.datasource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 읽기 전용 복제본 설정. enabled 가 켜져 있을 때만 라우팅 DataSource 를 만든다.
+ * <p>
+ * lag-query 는 복제 지연을 초 단위 숫자 하나로 돌려주는 쿼리다(예: PostgreSQL 의
+ * {@code select extract(epoch from now() - pg_last_xact_replay_timestamp())}).
+ * 복제본을 켜려면 반드시 있어야 한다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.replica")
+public class ReplicaProperties {
+
+  private boolean enabled = false;
+  private Selection selection = Selection.ROUND_ROBIN;
+  private Duration maxLag = Duration.ofSeconds(5);
+  private Duration checkInterval = Duration.ofSeconds(1);
+  private String lagQuery;
+  private List<Node> nodes = new ArrayList<>();
+
+  public enum Selection {
+    ROUND_ROBIN, LEAST_LOADED
+  }
+
+  @Getter
+  @Setter
+  public static class Node {
+
+    private String name;
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+    private int maximumPoolSize = 10;
+  }
+}
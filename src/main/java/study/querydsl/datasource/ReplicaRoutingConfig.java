@@ -0,0 +1,47 @@
+package study.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * querydsl.replica.enabled=true 일 때 spring.datasource 를 primary 로, querydsl.replica.nodes 를
+ * 복제본으로 하는 라우팅 DataSource 를 만든다. 꺼져 있으면 기본 DataSource 자동 설정을 그대로 쓴다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "querydsl.replica", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+  @Bean
+  HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .build();
+    dataSource.setPoolName("primary");
+    return dataSource;
+  }
+
+  @Bean
+  ReplicaPool replicaPool(ReplicaProperties properties) {
+    return ReplicaPool.create(properties);
+  }
+
+  @Bean
+  ReplicaLagMonitor replicaLagMonitor(ReplicaPool replicaPool, ReplicaProperties properties) {
+    return new ReplicaLagMonitor(replicaPool, properties);
+  }
+
+  @Bean
+  @Primary
+  DataSource dataSource(HikariDataSource primaryDataSource, ReplicaPool replicaPool) {
+    return new LazyConnectionDataSourceProxy(
+        new ReplicaRoutingDataSource(primaryDataSource, replicaPool));
+  }
+}
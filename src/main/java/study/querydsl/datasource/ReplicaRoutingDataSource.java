@@ -0,0 +1,41 @@
+package study.querydsl.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 읽기 전용 트랜잭션이면 복제본으로, 아니면 primary 로 보낸다. 쓸 수 있는 복제본이 없어도 primary 로 보낸다.
+ * <p>
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 동기화되지 않으므로
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} 로 감싸서 써야 한다.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  static final String PRIMARY = "primary";
+
+  private final ReplicaPool replicaPool;
+
+  public ReplicaRoutingDataSource(DataSource primary, ReplicaPool replicaPool) {
+    this.replicaPool = replicaPool;
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    for (Replica replica : replicaPool.getReplicas()) {
+      targets.put(replica.getName(), replica.getDataSource());
+    }
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return PRIMARY;
+    }
+    Replica replica = replicaPool.select();
+    return replica == null ? PRIMARY : replica.getName();
+  }
+}
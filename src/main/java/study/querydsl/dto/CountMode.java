@@ -0,0 +1,17 @@
+package study.querydsl.dto;
+
+/**
+ * 페이지 조회의 전체 개수 계산 방식.
+ */
+public enum CountMode {
+
+  /**
+   * 항상 정확한 count 쿼리를 실행한다.
+   */
+  EXACT,
+
+  /**
+   * 결과가 threshold 이상으로 추정되면 통계와 표본으로 추정한 값을 쓴다.
+   */
+  ESTIMATE
+}
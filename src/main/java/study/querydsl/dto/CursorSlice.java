@@ -0,0 +1,18 @@
+package study.querydsl.dto;
+
+import java.util.List;
+import lombok.Getter;
+
+@Getter
+public class CursorSlice<T> {
+
+  private final List<T> content;
+  private final String nextCursor;
+  private final boolean hasNext;
+
+  public CursorSlice(List<T> content, String nextCursor, boolean hasNext) {
+    this.content = content;
+    this.nextCursor = nextCursor;
+    this.hasNext = hasNext;
+  }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.dto;
+
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * totalElements 가 추정치일 수 있는 Page. totalExact 가 false 면 totalElements 와 totalPages 는 근사값이다.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+  private final boolean totalExact;
+
+  public EstimatedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+    super(content, pageable, total);
+    this.totalExact = totalExact;
+  }
+
+  public static <T> EstimatedPage<T> of(Page<T> page, boolean totalExact) {
+    return new EstimatedPage<>(page.getContent(), page.getPageable(), page.getTotalElements(),
+        totalExact);
+  }
+
+  @Override
+  public <U> EstimatedPage<U> map(Function<? super T, ? extends U> converter) {
+    return new EstimatedPage<>(getConvertedContent(converter), getPageable(), getTotalElements(),
+        totalExact);
+  }
+
+  public boolean isTotalExact() {
+    return totalExact;
+  }
+}
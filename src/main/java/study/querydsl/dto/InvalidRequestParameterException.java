@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 요청 파라미터(fields= 의 속성 이름 등)를 해석할 수 없다. 컨트롤러에서는 400 으로 응답한다.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidRequestParameterException extends IllegalArgumentException {
+
+  public InvalidRequestParameterException(String message) {
+    super(message);
+  }
+
+  public InvalidRequestParameterException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
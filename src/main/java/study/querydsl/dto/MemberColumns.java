@@ -0,0 +1,172 @@
+package study.querydsl.dto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 대량 조회용 컬럼 형식 결과. 행마다 객체를 만들지 않고 컬럼별 기본형 배열에 담는다.
+ * username 과 teamName 은 사전(dictionary) 인코딩하여 같은 문자열은 한 번만 보관한다.
+ * <p>
+ * 팀이 없는 회원의 teamId 는 {@link #NO_TEAM}, teamName 은 null 이다.
+ */
+public final class MemberColumns {
+
+  public static final long NO_TEAM = 0L;
+  private static final int NULL_CODE = -1;
+
+  private final int size;
+  private final long[] memberIds;
+  private final int[] ages;
+  private final long[] teamIds;
+  private final int[] usernameCodes;
+  private final String[] usernames;
+  private final int[] teamNameCodes;
+  private final String[] teamNames;
+
+  private MemberColumns(Builder builder) {
+    this.size = builder.size;
+    this.memberIds = Arrays.copyOf(builder.memberIds, size);
+    this.ages = Arrays.copyOf(builder.ages, size);
+    this.teamIds = Arrays.copyOf(builder.teamIds, size);
+    this.usernameCodes = Arrays.copyOf(builder.usernameCodes, size);
+    this.usernames = builder.usernames.toArray();
+    this.teamNameCodes = Arrays.copyOf(builder.teamNameCodes, size);
+    this.teamNames = builder.teamNames.toArray();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long memberId(int row) {
+    return memberIds[row];
+  }
+
+  public int age(int row) {
+    return ages[row];
+  }
+
+  public long teamId(int row) {
+    return teamIds[row];
+  }
+
+  public String username(int row) {
+    return decode(usernames, usernameCodes[row]);
+  }
+
+  public String teamName(int row) {
+    return decode(teamNames, teamNameCodes[row]);
+  }
+
+  /**
+   * 집계용으로 배열을 직접 읽는다. 돌려받은 배열을 수정하면 안 된다.
+   */
+  public long[] memberIds() {
+    return memberIds;
+  }
+
+  public int[] ages() {
+    return ages;
+  }
+
+  public long[] teamIds() {
+    return teamIds;
+  }
+
+  public int usernameCardinality() {
+    return usernames.length;
+  }
+
+  public int teamNameCardinality() {
+    return teamNames.length;
+  }
+
+  public MemberTeamDto toDto(int row) {
+    long teamId = teamIds[row];
+    return new MemberTeamDto(memberIds[row], username(row), ages[row],
+        teamId == NO_TEAM ? null : teamId, teamName(row));
+  }
+
+  private static String decode(String[] dictionary, int code) {
+    return code == NULL_CODE ? null : dictionary[code];
+  }
+
+  public static Builder builder(int initialCapacity) {
+    return new Builder(initialCapacity);
+  }
+
+  public static final class Builder {
+
+    private int size;
+    private long[] memberIds;
+    private int[] ages;
+    private long[] teamIds;
+    private int[] usernameCodes;
+    private int[] teamNameCodes;
+    private final Dictionary usernames = new Dictionary();
+    private final Dictionary teamNames = new Dictionary();
+
+    private Builder(int initialCapacity) {
+      int capacity = Math.max(initialCapacity, 16);
+      memberIds = new long[capacity];
+      ages = new int[capacity];
+      teamIds = new long[capacity];
+      usernameCodes = new int[capacity];
+      teamNameCodes = new int[capacity];
+    }
+
+    public Builder add(long memberId, String username, int age, long teamId, String teamName) {
+      if (size == memberIds.length) {
+        grow();
+      }
+      memberIds[size] = memberId;
+      usernameCodes[size] = usernames.encode(username);
+      ages[size] = age;
+      teamIds[size] = teamId;
+      teamNameCodes[size] = teamNames.encode(teamName);
+      size++;
+      return this;
+    }
+
+    public MemberColumns build() {
+      return new MemberColumns(this);
+    }
+
+    private void grow() {
+      int capacity = memberIds.length * 2;
+      memberIds = Arrays.copyOf(memberIds, capacity);
+      ages = Arrays.copyOf(ages, capacity);
+      teamIds = Arrays.copyOf(teamIds, capacity);
+      usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+      teamNameCodes = Arrays.copyOf(teamNameCodes, capacity);
+    }
+  }
+
+  private static final class Dictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+
+    int encode(String value) {
+      if (value == null) {
+        return NULL_CODE;
+      }
+      Integer code = codes.get(value);
+      if (code != null) {
+        return code;
+      }
+      int next = codes.size();
+      if (next == values.length) {
+        values = Arrays.copyOf(values, next * 2);
+      }
+      values[next] = value;
+      codes.put(value, next);
+      return next;
+    }
+
+    String[] toArray() {
+      return Arrays.copyOf(values, codes.size());
+    }
+  }
+}
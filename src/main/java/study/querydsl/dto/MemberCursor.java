@@ -0,0 +1,47 @@
+package study.querydsl.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import lombok.Getter;
+
+/**
+ * 키셋 페이징 커서. 정렬 키(age)와 member_id 를 불투명한 문자열로 인코딩한다.
+ */
+@Getter
+public class MemberCursor {
+
+  private static final String DELIMITER = ":";
+
+  private final int age;
+  private final Long memberId;
+
+  public MemberCursor(int age, Long memberId) {
+    this.age = age;
+    this.memberId = memberId;
+  }
+
+  public static MemberCursor of(MemberTeamDto last) {
+    return new MemberCursor(last.getAge(), last.getMemberId());
+  }
+
+  public String encode() {
+    String raw = age + DELIMITER + memberId;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static MemberCursor decode(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = raw.split(DELIMITER);
+      if (parts.length != 2) {
+        throw new InvalidRequestParameterException("Invalid cursor: " + cursor);
+      }
+      return new MemberCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+    } catch (InvalidRequestParameterException e) {
+      throw e;
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestParameterException("Invalid cursor: " + cursor, e);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.dto;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * fields= 파라미터로 고를 수 있는 MemberTeamDto 의 속성.
+ */
+public enum MemberField {
+
+  MEMBER_ID("memberId", MemberTeamDto::getMemberId),
+  USERNAME("username", MemberTeamDto::getUsername),
+  AGE("age", MemberTeamDto::getAge),
+  TEAM_ID("teamId", MemberTeamDto::getTeamId),
+  TEAM_NAME("teamName", MemberTeamDto::getTeamName);
+
+  private final String property;
+  private final Function<MemberTeamDto, Object> getter;
+
+  MemberField(String property, Function<MemberTeamDto, Object> getter) {
+    this.property = property;
+    this.getter = getter;
+  }
+
+  public String getProperty() {
+    return property;
+  }
+
+  /**
+   * "username,age" 처럼 쉼표로 구분된 속성 이름을 읽는다. 비어 있으면 전체 속성.
+   */
+  public static Set<MemberField> parse(String fields) {
+    if (!hasText(fields)) {
+      return EnumSet.allOf(MemberField.class);
+    }
+    Set<MemberField> result = EnumSet.noneOf(MemberField.class);
+    for (String name : fields.split(",")) {
+      String trimmed = name.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      result.add(of(trimmed));
+    }
+    return result.isEmpty() ? EnumSet.allOf(MemberField.class) : result;
+  }
+
+  /**
+   * fields 에 있는 속성만 담은 맵. 고른 속성은 값이 null 이어도 넣으므로, 고르지 않은 속성만 응답에서 빠진다.
+   */
+  public static Map<String, Object> select(MemberTeamDto dto, Set<MemberField> fields) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (MemberField field : fields) {
+      result.put(field.property, field.getter.apply(dto));
+    }
+    return result;
+  }
+
+  private static MemberField of(String property) {
+    for (MemberField field : values()) {
+      if (field.property.equals(property)) {
+        return field;
+      }
+    }
+    throw new InvalidRequestParameterException("Unknown member field: " + property);
+  }
+}
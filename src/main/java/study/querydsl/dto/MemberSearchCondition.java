@@ -1,5 +1,7 @@
 package study.querydsl.dto;
 
+import static org.springframework.util.StringUtils.hasText;
+
 import lombok.Data;
 
 @Data
@@ -7,8 +9,23 @@ public class MemberSearchCondition {
   //회원명, 팀명, 나이 (ageGoe, ageLoe)
 
   private String username;
+  private String usernameContains;
+  private String usernameStartsWith;
   private String teamName;
   private Integer ageGoe;
   private Integer ageLoe;
 
+  /**
+   * 빈 문자열은 조건이 없는 것과 같으므로 null 로 맞춘 사본. 캐시 키로 사용한다.
+   */
+  public MemberSearchCondition normalize() {
+    MemberSearchCondition normalized = new MemberSearchCondition();
+    normalized.setUsername(hasText(username) ? username : null);
+    normalized.setUsernameContains(hasText(usernameContains) ? usernameContains : null);
+    normalized.setUsernameStartsWith(hasText(usernameStartsWith) ? usernameStartsWith : null);
+    normalized.setTeamName(hasText(teamName) ? teamName : null);
+    normalized.setAgeGoe(ageGoe);
+    normalized.setAgeLoe(ageLoe);
+    return normalized;
+  }
 }
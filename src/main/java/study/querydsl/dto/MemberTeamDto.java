@@ -3,17 +3,20 @@ package study.querydsl.dto;
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 
+/**
+ * fields= 로 일부 속성만 조회하면 나머지는 null 이다. 응답에서 빼는 것은 {@link MemberField#select} 가 한다.
+ */
 @Data
 public class MemberTeamDto {
 
   private Long memberId;
   private String username;
-  private int age;
+  private Integer age;
   private Long teamId;
   private String teamName;
 
   @QueryProjection
-  public MemberTeamDto(Long memberId, String username, int age, Long teamId,
+  public MemberTeamDto(Long memberId, String username, Integer age, Long teamId,
       String teamName) {
     this.memberId = memberId;
     this.username = username;
@@ -0,0 +1,28 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+@Data
+public class TeamAgeStats {
+
+  private Long teamId;
+  private String teamName;
+  private long memberCount;
+  private long ageSum;
+  private Integer minAge;
+  private Integer maxAge;
+
+  public TeamAgeStats(Long teamId, String teamName, long memberCount, long ageSum,
+      Integer minAge, Integer maxAge) {
+    this.teamId = teamId;
+    this.teamName = teamName;
+    this.memberCount = memberCount;
+    this.ageSum = ageSum;
+    this.minAge = minAge;
+    this.maxAge = maxAge;
+  }
+
+  public double getAvgAge() {
+    return memberCount == 0 ? 0 : (double) ageSum / memberCount;
+  }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.entity;
+
+import static lombok.AccessLevel.PROTECTED;
+
+import java.time.LocalDateTime;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 청크 단위 벌크 DML 작업의 진행 상태. 청크와 같은 트랜잭션에서 갱신되므로 중단되어도 마지막으로 커밋된
+ * 청크 다음부터 이어서 실행할 수 있다. (lastId, maxId] 구간이 남은 작업이다.
+ */
+@Entity
+@Getter
+@ToString
+@NoArgsConstructor(access = PROTECTED)
+public class BulkJobCheckpoint {
+
+  @Id
+  private String jobName;
+  private long startId;
+  private long lastId;
+  private long maxId;
+  private long rowsAffected;
+  private long chunks;
+  private boolean completed;
+  private LocalDateTime updatedAt;
+
+  /**
+   * @param startId 처리할 첫 id 보다 작은 값
+   * @param maxId   처리할 마지막 id
+   */
+  public BulkJobCheckpoint(String jobName, long startId, long maxId) {
+    this.jobName = jobName;
+    this.startId = startId;
+    this.lastId = startId;
+    this.maxId = maxId;
+    this.completed = startId >= maxId;
+    this.updatedAt = LocalDateTime.now();
+  }
+
+  public void advance(long lastId, long rows) {
+    this.lastId = lastId;
+    this.rowsAffected += rows;
+    this.chunks++;
+    this.completed = lastId >= maxId;
+    this.updatedAt = LocalDateTime.now();
+  }
+
+  public double getProgress() {
+    return completed ? 1.0 : (double) (lastId - startId) / (maxId - startId);
+  }
+}
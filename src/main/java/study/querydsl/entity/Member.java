@@ -1,28 +1,46 @@
 package study.querydsl.entity;
 
 import static javax.persistence.FetchType.LAZY;
+import static javax.persistence.GenerationType.SEQUENCE;
 import static lombok.AccessLevel.PROTECTED;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import study.querydsl.repository.UsernameIndexListener;
+import study.querydsl.repository.support.EntityChangeListener;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_member_username", columnList = "username"),
+    @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+    @Index(name = "idx_member_age_id", columnList = "age, member_id")
+})
+@EntityListeners({EntityChangeListener.class, UsernameIndexListener.class})
 @Getter
 @Setter
 @ToString(of = {"id", "username", "age"})
 @NoArgsConstructor(access = PROTECTED)
 public class Member {
 
+  public static final String SEQUENCE_NAME = "member_seq";
+  public static final int ALLOCATION_SIZE = 50;
+
   @Id
-  @GeneratedValue
+  @GeneratedValue(strategy = SEQUENCE, generator = SEQUENCE_NAME)
+  @SequenceGenerator(name = SEQUENCE_NAME, sequenceName = SEQUENCE_NAME,
+      allocationSize = ALLOCATION_SIZE)
   @Column(name = "member_id")
   private Long id;
   private String username;
@@ -1,26 +1,40 @@
 package study.querydsl.entity;
 
+import static javax.persistence.GenerationType.SEQUENCE;
 import static lombok.AccessLevel.PROTECTED;
 
 import java.util.ArrayList;
 import java.util.List;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import study.querydsl.repository.support.EntityChangeListener;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
+@EntityListeners(EntityChangeListener.class)
 @Getter
 @Setter
 @ToString(of = {"id", "name"})
 @NoArgsConstructor(access = PROTECTED)
 public class Team {
 
-  @Id @GeneratedValue
+  public static final String SEQUENCE_NAME = "team_seq";
+  public static final int ALLOCATION_SIZE = 50;
+
+  @Id
+  @GeneratedValue(strategy = SEQUENCE, generator = SEQUENCE_NAME)
+  @SequenceGenerator(name = SEQUENCE_NAME, sequenceName = SEQUENCE_NAME,
+      allocationSize = ALLOCATION_SIZE)
   private Long id;
   private String name;
 
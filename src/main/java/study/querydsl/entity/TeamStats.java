@@ -0,0 +1,27 @@
+package study.querydsl.entity;
+
+import static lombok.AccessLevel.PROTECTED;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 팀별 회원 수, 나이 합계, 최소/최대 나이 요약. 회원 변경 시 TeamStatsListener 가 JDBC 로 직접 갱신한다.
+ * <p>
+ * 회원이 빠지면서 최소/최대 나이가 바뀌었을 수 있으면 extremesStale 이 켜지고, 조회 시 다시 계산한다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = PROTECTED)
+public class TeamStats {
+
+  @Id
+  private Long teamId;
+  private long memberCount;
+  private long ageSum;
+  private Integer minAge;
+  private Integer maxAge;
+  private boolean extremesStale;
+}
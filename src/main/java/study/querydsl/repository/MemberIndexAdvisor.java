@@ -0,0 +1,191 @@
+package study.querydsl.repository;
+
+import static study.querydsl.repository.MemberSearchQueryCache.AGE_GOE;
+import static study.querydsl.repository.MemberSearchQueryCache.AGE_LOE;
+import static study.querydsl.repository.MemberSearchQueryCache.MEMBER_IDS;
+import static study.querydsl.repository.MemberSearchQueryCache.SHAPES;
+import static study.querydsl.repository.MemberSearchQueryCache.TEAM_NAME;
+import static study.querydsl.repository.MemberSearchQueryCache.USERNAME;
+import static study.querydsl.repository.MemberSearchQueryCache.USERNAME_CONTAINS;
+import static study.querydsl.repository.MemberSearchQueryCache.USERNAME_STARTS_WITH;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+
+/**
+ * 회원 검색에서 실제로 쓰인 조건 조합(모양)별 실행 횟수와 지연 시간을 모으고,
+ * 자주 쓰이면서 느린 조합 중 Member 에 선언된 인덱스로 커버되지 않는 것에 인덱스를 제안한다.
+ * <p>
+ * /actuator/indexadvisor 로 조회한다. 제안하는 인덱스는 등치 조건 컬럼 뒤에 범위 조건 컬럼(age)을 둔다.
+ */
+@Component
+@Endpoint(id = "indexadvisor")
+public class MemberIndexAdvisor {
+
+  private final long minSamples;
+  private final long minMeanNanos;
+  private final List<List<String>> declaredIndexes;
+
+  private final AtomicLongArray counts = new AtomicLongArray(SHAPES);
+  private final AtomicLongArray totalNanos = new AtomicLongArray(SHAPES);
+  private final AtomicLongArray maxNanos = new AtomicLongArray(SHAPES);
+
+  public MemberIndexAdvisor(@Value("${querydsl.index-advisor.min-samples:100}") long minSamples,
+      @Value("${querydsl.index-advisor.min-mean-latency:5ms}") Duration minMeanLatency) {
+    this.minSamples = minSamples;
+    this.minMeanNanos = minMeanLatency.toNanos();
+    this.declaredIndexes = declaredIndexes(Member.class);
+  }
+
+  public void record(int shape, long elapsedNanos) {
+    counts.incrementAndGet(shape);
+    totalNanos.addAndGet(shape, elapsedNanos);
+    maxNanos.accumulateAndGet(shape, elapsedNanos, Math::max);
+  }
+
+  @ReadOperation
+  public List<ShapeReport> report() {
+    List<ShapeReport> reports = new ArrayList<>();
+    for (int shape = 0; shape < SHAPES; shape++) {
+      long count = counts.get(shape);
+      if (count == 0) {
+        continue;
+      }
+      long meanNanos = totalNanos.get(shape) / count;
+      List<String> columns = indexColumns(shape);
+      boolean suggest = count >= minSamples && meanNanos >= minMeanNanos
+          && !columns.isEmpty() && !isCovered(columns, hasRange(shape));
+      reports.add(new ShapeReport(predicates(shape), count, toMillis(meanNanos),
+          toMillis(maxNanos.get(shape)), suggest ? ddl(columns) : null));
+    }
+    reports.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+    return reports;
+  }
+
+  public void reset() {
+    for (int shape = 0; shape < SHAPES; shape++) {
+      counts.set(shape, 0);
+      totalNanos.set(shape, 0);
+      maxNanos.set(shape, 0);
+    }
+  }
+
+  /**
+   * 등치 조건 컬럼(username, team_id) 다음에 범위 조건 컬럼(age).
+   * teamName 조건은 조인 여부와 관계없이 member.team_id 로 걸러진다.
+   */
+  static List<String> indexColumns(int shape) {
+    List<String> columns = new ArrayList<>();
+    if (has(shape, USERNAME)) {
+      columns.add("username");
+    }
+    if (has(shape, TEAM_NAME)) {
+      columns.add("team_id");
+    }
+    if (hasRange(shape)) {
+      columns.add("age");
+    }
+    return columns;
+  }
+
+  /**
+   * 선언된 인덱스의 앞쪽 컬럼들이 등치 조건 컬럼을 모두 포함하고, 범위 조건이 있으면 바로 다음 컬럼이 age 인지 본다.
+   */
+  private boolean isCovered(List<String> columns, boolean range) {
+    int equalities = range ? columns.size() - 1 : columns.size();
+    for (List<String> index : declaredIndexes) {
+      if (index.size() < columns.size()) {
+        continue;
+      }
+      if (!index.subList(0, equalities).containsAll(columns.subList(0, equalities))) {
+        continue;
+      }
+      if (!range || index.get(equalities).equals("age")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<List<String>> declaredIndexes(Class<?> entityType) {
+    Table table = entityType.getAnnotation(Table.class);
+    if (table == null) {
+      return List.of();
+    }
+    List<List<String>> indexes = new ArrayList<>();
+    for (Index index : table.indexes()) {
+      indexes.add(Arrays.stream(index.columnList().split(","))
+          .map(column -> column.trim().split("\\s+")[0].toLowerCase(Locale.ROOT))
+          .collect(Collectors.toList()));
+    }
+    return indexes;
+  }
+
+  private static List<String> predicates(int shape) {
+    List<String> predicates = new ArrayList<>();
+    if (has(shape, USERNAME)) {
+      predicates.add("username");
+    }
+    if (has(shape, TEAM_NAME)) {
+      predicates.add("teamName");
+    }
+    if (has(shape, AGE_GOE)) {
+      predicates.add("ageGoe");
+    }
+    if (has(shape, AGE_LOE)) {
+      predicates.add("ageLoe");
+    }
+    if (has(shape, USERNAME_CONTAINS)) {
+      predicates.add("usernameContains");
+    }
+    if (has(shape, USERNAME_STARTS_WITH)) {
+      predicates.add("usernameStartsWith");
+    }
+    if (has(shape, MEMBER_IDS)) {
+      predicates.add("memberIds");
+    }
+    return predicates;
+  }
+
+  private static String ddl(List<String> columns) {
+    return "create index idx_member_" + String.join("_", columns)
+        + " on member (" + String.join(", ", columns) + ")";
+  }
+
+  private static boolean hasRange(int shape) {
+    return has(shape, AGE_GOE) || has(shape, AGE_LOE);
+  }
+
+  private static boolean has(int shape, int flag) {
+    return (shape & flag) != 0;
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class ShapeReport {
+
+    private final List<String> predicates;
+    private final long count;
+    private final double meanMillis;
+    private final double maxMillis;
+    private final String suggestedIndex;
+  }
+}
@@ -5,13 +5,33 @@ import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
@@ -23,6 +43,15 @@ public class MemberJpaRepository {
 
   private final EntityManager em;
   private final JPAQueryFactory queryFactory;
+  private final MemberSearchQueryCache queryCache;
+  private final MemberProjectionSearch projectionSearch;
+  private final UsernameIndex usernameIndex;
+
+  @Value("${querydsl.export.fetch-size:500}")
+  private int exportFetchSize;
+
+  @Value("${querydsl.multi-get.chunk-size:256}")
+  private int multiGetChunkSize;
 
   public void save(Member member) {
     em.persist(member);
@@ -33,6 +62,39 @@ public class MemberJpaRepository {
     return Optional.ofNullable(findMember);
   }
 
+  /**
+   * 여러 id 를 한 번에 조회한다. 결과는 ids 순서를 따르고, 없는 id 는 건너뛴다.
+   * <p>
+   * Hibernate multiLoad 로 영속성 컨텍스트에 이미 있는 id 는 SQL 없이 돌려주고, 나머지만 chunk-size 개씩 IN 쿼리로
+   * 조회한다.
+   */
+  @Transactional(readOnly = true)
+  public List<Member> findAllById(Collection<Long> ids) {
+    Assert.notNull(ids, "Ids must not be null!");
+    Assert.noNullElements(ids, "Ids must not contain null!");
+    List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+    List<Member> members = em.unwrap(Session.class)
+        .byMultipleIds(Member.class)
+        .enableSessionCheck(true)
+        .enableOrderedReturn(true)
+        .withBatchSize(Math.max(multiGetChunkSize, 1))
+        .multiLoad(distinct);
+    // 순서 보장 모드에서는 distinct 와 같은 위치에 엔티티나 null 이 온다.
+    Map<Long, Member> found = new HashMap<>();
+    for (int i = 0; i < distinct.size(); i++) {
+      found.put(distinct.get(i), members.get(i));
+    }
+
+    List<Member> result = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      Member m = found.get(id);
+      if (m != null) {
+        result.add(m);
+      }
+    }
+    return result;
+  }
+
   public List<Member> findAll() {
     return em.createQuery("select m from Member m", Member.class)
         .getResultList();
@@ -57,12 +119,16 @@ public class MemberJpaRepository {
         .fetch();
   }
 
+  /**
+   * BooleanBuilder 로 조건을 조립한다. 요청마다 쿼리를 새로 만들므로 {@link #search} 의 템플릿 캐시를 거치지 않는다.
+   */
   public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
 
     BooleanBuilder builder = new BooleanBuilder();
     if (hasText(condition.getUsername())) {
       builder.and(member.username.eq(condition.getUsername()));
     }
+    builder.and(usernameIndex.usernameMatches(condition));
     if (hasText(condition.getTeamName())) {
       builder.and(team.name.eq(condition.getTeamName()));
     }
@@ -88,7 +154,37 @@ public class MemberJpaRepository {
   }
 
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
-    return queryFactory
+    return queryCache.fetch(condition);
+  }
+
+  /**
+   * fields 에 있는 속성만 채워서 조회한다.
+   */
+  public List<MemberTeamDto> search(MemberSearchCondition condition, Set<MemberField> fields) {
+    return projectionSearch.fetch(condition, fields, 0, -1);
+  }
+
+  /**
+   * search 와 같은 프로젝션을 커서로 한 행씩 흘려보낸다. 결과를 리스트로 모으지 않고 DTO 프로젝션이라
+   * 영속성 컨텍스트에 쌓이는 엔티티도 없으므로 내보내는 행 수와 관계없이 메모리 사용량이 일정하다.
+   *
+   * @return 전달한 행 수
+   */
+  @Transactional(readOnly = true)
+  public long streamSearch(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer) {
+    return streamSearch(condition, 0, -1, consumer);
+  }
+
+  /**
+   * offset/limit 이 있는 streamSearch. 한 페이지를 모으지 않고 응답으로 바로 쓸 때 사용한다.
+   *
+   * @param limit 0 보다 작으면 제한 없음
+   * @return 전달한 행 수
+   */
+  @Transactional(readOnly = true)
+  public long streamSearch(MemberSearchCondition condition, long offset, int limit,
+      Consumer<MemberTeamDto> consumer) {
+    JPAQuery<MemberTeamDto> query = queryFactory
         .select(new QMemberTeamDto(
             member.id.as("memberId"),
             member.username,
@@ -100,11 +196,71 @@ public class MemberJpaRepository {
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIndex.usernameMatches(condition),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
             ageLoe(condition.getAgeLoe())
-        )
-        .fetch();
+        );
+    if (offset > 0) {
+      query.offset(offset);
+    }
+    if (limit >= 0) {
+      query.limit(limit);
+    }
+
+    long rows = 0;
+    try (Stream<MemberTeamDto> stream = query
+        .setHint(QueryHints.FETCH_SIZE, exportFetchSize)
+        .stream()) {
+      Iterator<MemberTeamDto> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        consumer.accept(iterator.next());
+        rows++;
+      }
+    }
+    return rows;
+  }
+
+  public long count(MemberSearchCondition condition) {
+    return queryCache.count(condition);
+  }
+
+  /**
+   * search 와 같은 조건의 결과를 {@link MemberColumns} 로 조회한다. 행을 커서로 흘려보내며 기본형 배열에 바로 채우므로
+   * 결과 전체를 DTO 리스트로 모으지 않는다.
+   */
+  @Transactional(readOnly = true)
+  public MemberColumns searchColumns(MemberSearchCondition condition) {
+    List<Expression<?>> columns = new ArrayList<>();
+    for (MemberField field : MemberField.values()) {
+      columns.add(MemberProjectionSearch.column(field, false));
+    }
+    JPAQuery<Tuple> query = queryFactory
+        .select(Projections.tuple(columns.toArray(new Expression<?>[0])))
+        .from(member)
+        .leftJoin(member.team, team)
+        .where(
+            usernameEq(condition.getUsername()),
+            usernameIndex.usernameMatches(condition),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+        );
+
+    MemberColumns.Builder builder = MemberColumns.builder(exportFetchSize);
+    try (Stream<Tuple> stream = query
+        .setHint(QueryHints.FETCH_SIZE, exportFetchSize)
+        .stream()) {
+      Iterator<Tuple> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        Tuple row = iterator.next();
+        Integer age = row.get(member.age);
+        Long teamId = row.get(member.team.id);
+        builder.add(row.get(member.id), row.get(member.username), age == null ? 0 : age,
+            teamId == null ? MemberColumns.NO_TEAM : teamId, row.get(team.name));
+      }
+    }
+    return builder.build();
   }
 
   private BooleanExpression ageGoe(Integer ageGoe) {
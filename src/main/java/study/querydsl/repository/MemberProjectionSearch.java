@@ -0,0 +1,123 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.dto.MemberField.AGE;
+import static study.querydsl.dto.MemberField.MEMBER_ID;
+import static study.querydsl.dto.MemberField.TEAM_ID;
+import static study.querydsl.dto.MemberField.TEAM_NAME;
+import static study.querydsl.dto.MemberField.USERNAME;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberField;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 요청한 속성(fields=)만 select 하는 회원 검색. team 조인은 팀 이름을 조회하거나 팀 이름으로
+ * 거르면서 {@link TeamCache} 를 쓸 수 없을 때만 건다. teamId 는 member.team_id 컬럼으로 충분하다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberProjectionSearch {
+
+  private final JPAQueryFactory queryFactory;
+  private final TeamCache teamCache;
+  private final MemberIndexAdvisor indexAdvisor;
+  private final UsernameIndex usernameIndex;
+
+  /**
+   * @param limit 0 보다 작으면 제한 없음
+   */
+  public List<MemberTeamDto> fetch(MemberSearchCondition condition, Set<MemberField> fields,
+      long offset, int limit) {
+    TeamCache.Snapshot teams = teamCache.snapshot();
+    String teamName = condition.getTeamName();
+
+    BooleanExpression teamPredicate = null;
+    if (hasText(teamName)) {
+      if (teams != null) {
+        List<Long> teamIds = teams.idsByName(teamName);
+        if (teamIds.isEmpty()) {
+          return new ArrayList<>();
+        }
+        teamPredicate = member.team.id.in(teamIds);
+      } else {
+        teamPredicate = team.name.eq(teamName);
+      }
+    }
+    boolean join = teams == null && (hasText(teamName) || fields.contains(TEAM_NAME));
+
+    Set<Expression<?>> columns = new LinkedHashSet<>();
+    for (MemberField field : fields) {
+      columns.add(column(field, teams != null));
+    }
+
+    JPAQuery<Tuple> query = queryFactory
+        .select(columns.toArray(new Expression<?>[0]))
+        .from(member);
+    if (join) {
+      query.leftJoin(member.team, team);
+    }
+    query.where(
+        hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null,
+        usernameIndex.usernameMatches(condition),
+        teamPredicate,
+        condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+        condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null
+    );
+    if (offset > 0) {
+      query.offset(offset);
+    }
+    if (limit >= 0) {
+      query.limit(limit);
+    }
+
+    long start = System.nanoTime();
+    List<Tuple> rows = query.fetch();
+    indexAdvisor.record(MemberSearchQueryCache.shapeOf(condition), System.nanoTime() - start);
+
+    List<MemberTeamDto> result = new ArrayList<>(rows.size());
+    for (Tuple row : rows) {
+      String name = null;
+      if (fields.contains(TEAM_NAME)) {
+        name = teams != null ? teams.nameOf(row.get(member.team.id)) : row.get(team.name);
+      }
+      result.add(new MemberTeamDto(
+          fields.contains(MEMBER_ID) ? row.get(member.id) : null,
+          fields.contains(USERNAME) ? row.get(member.username) : null,
+          fields.contains(AGE) ? row.get(member.age) : null,
+          fields.contains(TEAM_ID) ? row.get(member.team.id) : null,
+          name));
+    }
+    return result;
+  }
+
+  static Expression<?> column(MemberField field, boolean teamCached) {
+    switch (field) {
+      case MEMBER_ID:
+        return member.id;
+      case USERNAME:
+        return member.username;
+      case AGE:
+        return member.age;
+      case TEAM_ID:
+        return member.team.id;
+      case TEAM_NAME:
+        return teamCached ? member.team.id : team.name;
+      default:
+        throw new IllegalArgumentException("Unknown member field: " + field);
+    }
+  }
+}
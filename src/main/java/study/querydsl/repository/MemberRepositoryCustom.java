@@ -1,8 +1,13 @@
 package study.querydsl.repository;
 
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.CountMode;
+import study.querydsl.dto.CursorSlice;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -10,4 +15,11 @@ public interface MemberRepositoryCustom {
   List<MemberTeamDto> search(MemberSearchCondition condition);
   Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
   Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+  EstimatedPage<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,
+      Pageable pageable, CountMode countMode);
+  Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+      Set<MemberField> fields);
+  EstimatedPage<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+      Set<MemberField> fields, CountMode countMode);
+  CursorSlice<MemberTeamDto> searchByCursor(MemberSearchCondition condition, String after, int size);
 }
@@ -4,72 +4,174 @@ import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import study.querydsl.dto.CountMode;
+import study.querydsl.dto.CursorSlice;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CountCache;
+import study.querydsl.repository.support.CountEstimator;
+import study.querydsl.repository.support.CountEstimator.CountEstimate;
+import study.querydsl.repository.support.PageCountExecutor;
+import study.querydsl.repository.support.QueryResultCache;
 
+/**
+ * 검색은 모두 읽기 전용 트랜잭션으로 실행되므로 복제본 라우팅이 켜져 있으면 복제본에서 읽는다.
+ */
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+  private static final Set<Class<?>> MEMBER_TEAM = Set.of(Member.class, Team.class);
+
   private final JPAQueryFactory queryFactory;
+  private final CountCache countCache;
+  private final MemberSearchQueryCache queryCache;
+  private final PageCountExecutor pageCountExecutor;
+  private final TeamCache teamCache;
+  private final MemberProjectionSearch projectionSearch;
+  private final QueryResultCache resultCache;
+  private final CountEstimator countEstimator;
+  private final UsernameIndex usernameIndex;
 
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
-    return queryFactory
-        .select(new QMemberTeamDto(
-            member.id.as("memberId"),
-            member.username,
-            member.age,
-            team.id.as("teamId"),
-            team.name.as("teamName")
-        ))
-        .from(member)
-        .leftJoin(member.team, team)
-        .where(
-            usernameEq(condition.getUsername()),
-            teamNameEq(condition.getTeamName()),
-            ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe())
-        )
-        .fetch();
+    return resultCache.<List<MemberTeamDto>>get(
+        List.of("search", condition.normalize()), MEMBER_TEAM, List::size,
+        () -> Collections.unmodifiableList(queryCache.fetch(condition)));
   }
 
   @Override
   public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-    List<MemberTeamDto> result = queryFactory
-        .select(new QMemberTeamDto(
-            member.id.as("memberId"),
-            member.username,
-            member.age,
-            team.id.as("teamId"),
-            team.name.as("teamName")
-        ))
-        .from(member)
-        .leftJoin(member.team, team)
+    return pageCountExecutor.getPage(pageable,
+        () -> queryCache.fetch(condition, pageable.getOffset(), pageable.getPageSize()),
+        () -> count(condition));
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    Object key = List.of("searchPageComplex", condition.normalize(), pageable.getOffset(),
+        pageable.getPageSize());
+    return resultCache.<Page<MemberTeamDto>>get(key, MEMBER_TEAM, Page::getNumberOfElements,
+        () -> pageCountExecutor.getPage(pageable,
+            () -> queryCache.fetch(condition, pageable.getOffset(), pageable.getPageSize()),
+            () -> count(condition)));
+  }
+
+  /**
+   * countMode 가 ESTIMATE 이면 전체 개수가 threshold 이상일 때 추정치를 쓴다.
+   * 추정치인지는 {@link EstimatedPage#isTotalExact()} 로 알 수 있다.
+   */
+  @Override
+  public EstimatedPage<MemberTeamDto> searchPageComplex(MemberSearchCondition condition,
+      Pageable pageable, CountMode countMode) {
+    if (countMode != CountMode.ESTIMATE) {
+      return EstimatedPage.of(searchPageComplex(condition, pageable), true);
+    }
+    return estimatedPage(condition, pageable,
+        () -> queryCache.fetch(condition, pageable.getOffset(), pageable.getPageSize()));
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable,
+      Set<MemberField> fields) {
+    return searchPage(condition, pageable, fields, CountMode.EXACT);
+  }
+
+  /**
+   * fields 에 있는 속성만 조회한다. count 는 searchPageComplex 와 같은 규칙을 따른다.
+   */
+  @Override
+  public EstimatedPage<MemberTeamDto> searchPage(MemberSearchCondition condition,
+      Pageable pageable, Set<MemberField> fields, CountMode countMode) {
+    Supplier<List<MemberTeamDto>> content = () -> projectionSearch.fetch(condition, fields,
+        pageable.getOffset(), pageable.getPageSize());
+    if (countMode != CountMode.ESTIMATE) {
+      return EstimatedPage.of(pageCountExecutor.getPage(pageable, content,
+          () -> count(condition)), true);
+    }
+    return estimatedPage(condition, pageable, content);
+  }
+
+  private EstimatedPage<MemberTeamDto> estimatedPage(MemberSearchCondition condition,
+      Pageable pageable, Supplier<List<MemberTeamDto>> content) {
+    AtomicBoolean exact = new AtomicBoolean(true);
+    Page<MemberTeamDto> page = pageCountExecutor.getPage(pageable, content, () -> {
+      CountEstimate estimate = countEstimator.count(member, member.id,
+          range -> countInRange(condition, range), () -> count(condition));
+      exact.set(estimate.isExact());
+      return estimate.getTotal();
+    });
+    return EstimatedPage.of(page, exact.get());
+  }
+
+  private long count(MemberSearchCondition condition) {
+    return countCache.get(condition.normalize(), () -> queryCache.count(condition));
+  }
+
+  private long countInRange(MemberSearchCondition condition, Predicate range) {
+    JPAQuery<Long> query = queryFactory
+        .select(member.count())
+        .from(member);
+    if (hasText(condition.getTeamName())) {
+      query.leftJoin(member.team, team);
+    }
+    return query
         .where(
             usernameEq(condition.getUsername()),
+            usernameIndex.usernameMatches(condition),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe())
+            ageLoe(condition.getAgeLoe()),
+            range
         )
-        .offset(pageable.getOffset())
-        .limit(pageable.getPageSize())
-        .fetch();
-
-    return new PageImpl<>(result, pageable, result.size());
+        .fetchOne();
   }
 
+  /**
+   * 키셋(seek) 페이징. offset 대신 (age, member_id) 커서 이후의 행만 조회하므로
+   * 몇 번째 페이지든 첫 페이지와 같은 비용으로 조회된다.
+   */
   @Override
-  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-    List<MemberTeamDto> result = queryFactory
+  public CursorSlice<MemberTeamDto> searchByCursor(MemberSearchCondition condition, String after,
+      int size) {
+    Assert.isTrue(size > 0, "Size must be greater than zero!");
+    MemberCursor cursor = hasText(after) ? MemberCursor.decode(after) : null;
+    TeamCache.Snapshot teams = teamCache.snapshot();
+
+    List<MemberTeamDto> result = teams != null
+        ? searchByCursorWithoutJoin(condition, cursor, size, teams)
+        : searchByCursorWithJoin(condition, cursor, size);
+
+    boolean hasNext = result.size() > size;
+    List<MemberTeamDto> content = hasNext ? result.subList(0, size) : result;
+    String nextCursor = hasNext ? MemberCursor.of(content.get(size - 1)).encode() : null;
+    return new CursorSlice<>(content, nextCursor, hasNext);
+  }
+
+  private List<MemberTeamDto> searchByCursorWithJoin(MemberSearchCondition condition,
+      MemberCursor cursor, int size) {
+    return queryFactory
         .select(new QMemberTeamDto(
             member.id.as("memberId"),
             member.username,
@@ -81,24 +183,61 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
+            usernameIndex.usernameMatches(condition),
             teamNameEq(condition.getTeamName()),
             ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe())
+            ageLoe(condition.getAgeLoe()),
+            afterCursor(cursor)
         )
+        .orderBy(member.age.asc(), member.id.asc())
+        .limit(size + 1)
         .fetch();
+  }
 
-    JPAQuery<Long> countQuery = queryFactory
-        .select(member.count())
+  /**
+   * teamName 조건을 캐시로 team id 목록으로 바꾸고, team 조인 없이 조회한 뒤 teamName 을 캐시에서 채운다.
+   */
+  private List<MemberTeamDto> searchByCursorWithoutJoin(MemberSearchCondition condition,
+      MemberCursor cursor, int size, TeamCache.Snapshot teams) {
+    BooleanExpression teamIdIn = null;
+    if (hasText(condition.getTeamName())) {
+      List<Long> teamIds = teams.idsByName(condition.getTeamName());
+      if (teamIds.isEmpty()) {
+        return new ArrayList<>();
+      }
+      teamIdIn = member.team.id.in(teamIds);
+    }
+
+    List<Tuple> rows = queryFactory
+        .select(member.id, member.username, member.age, member.team.id)
         .from(member)
-        .leftJoin(member.team, team)
         .where(
             usernameEq(condition.getUsername()),
-            teamNameEq(condition.getTeamName()),
+            usernameIndex.usernameMatches(condition),
+            teamIdIn,
             ageGoe(condition.getAgeGoe()),
-            ageLoe(condition.getAgeLoe())
-        );
+            ageLoe(condition.getAgeLoe()),
+            afterCursor(cursor)
+        )
+        .orderBy(member.age.asc(), member.id.asc())
+        .limit(size + 1)
+        .fetch();
+
+    List<MemberTeamDto> result = new ArrayList<>(rows.size());
+    for (Tuple row : rows) {
+      Long teamId = row.get(member.team.id);
+      result.add(new MemberTeamDto(row.get(member.id), row.get(member.username),
+          row.get(member.age), teamId, teams.nameOf(teamId)));
+    }
+    return result;
+  }
 
-    return PageableExecutionUtils.getPage(result, pageable, countQuery::fetchOne);
+  private BooleanExpression afterCursor(MemberCursor cursor) {
+    if (cursor == null) {
+      return null;
+    }
+    return member.age.gt(cursor.getAge())
+        .or(member.age.eq(cursor.getAge()).and(member.id.gt(cursor.getMemberId())));
   }
 
   private BooleanExpression ageGoe(Integer ageGoe) {
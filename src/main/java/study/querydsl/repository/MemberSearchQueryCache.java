@@ -0,0 +1,295 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.support.QueryDeadline;
+
+/**
+ * MemberSearchCondition 의 모양(username, teamName, ageGoe, ageLoe, usernameContains,
+ * usernameStartsWith, 후보 id 각각의 유무, 128가지)별로 Querydsl 이 만든 JPQL 을 한 번만 만들어 두고,
+ * 요청마다 파라미터만 바인딩한다.
+ * <p>
+ * 같은 모양이면 JPQL 문자열이 같으므로 Hibernate 쿼리 플랜 캐시도 그대로 재사용된다.
+ * <p>
+ * {@link TeamCache} 를 쓸 수 있으면 team 조인 없이 member.team.id 로 검색하고 teamName 은 캐시에서 채운다.
+ * usernameContains/usernameStartsWith 는 {@link UsernameIndex} 가 후보 id 를 주면 member.id in (...) 을 더한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberSearchQueryCache implements MeterBinder {
+
+  static final int USERNAME = 1;
+  static final int TEAM_NAME = 1 << 1;
+  static final int AGE_GOE = 1 << 2;
+  static final int AGE_LOE = 1 << 3;
+  static final int USERNAME_CONTAINS = 1 << 4;
+  static final int USERNAME_STARTS_WITH = 1 << 5;
+  static final int MEMBER_IDS = 1 << 6;
+  static final int SHAPES = 1 << 7;
+  private static final int JOINLESS = SHAPES;
+
+  private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+      member.id.as("memberId"),
+      member.username,
+      member.age,
+      team.id.as("teamId"),
+      team.name.as("teamName")
+  );
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TeamCache teamCache;
+  private final MemberIndexAdvisor indexAdvisor;
+  private final UsernameIndex usernameIndex;
+
+  private final AtomicReferenceArray<String> contentTemplates =
+      new AtomicReferenceArray<>(SHAPES * 2);
+  private final AtomicReferenceArray<String> countTemplates =
+      new AtomicReferenceArray<>(SHAPES * 2);
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public List<MemberTeamDto> fetch(MemberSearchCondition condition) {
+    return fetch(condition, 0, -1);
+  }
+
+  /**
+   * @param limit 0 보다 작으면 제한 없음
+   */
+  public List<MemberTeamDto> fetch(MemberSearchCondition condition, long offset, int limit) {
+    int shape = shapeOf(condition);
+    List<Long> memberIds = memberIds(shape, condition);
+    if (memberIds != null) {
+      if (memberIds.isEmpty()) {
+        return new ArrayList<>();
+      }
+      shape |= MEMBER_IDS;
+    }
+    TeamCache.Snapshot teams = teamCache.snapshot();
+    List<Long> teamIds = teams == null ? null : teamIds(teams, shape, condition);
+    if (teamIds != null && teamIds.isEmpty()) {
+      return new ArrayList<>();
+    }
+    String jpql = template(contentTemplates, shape, false, teams != null);
+    Query query = bind(QueryDeadline.apply(em, em.createQuery(jpql)), shape, condition, teamIds,
+        memberIds);
+    if (offset > 0) {
+      query.setFirstResult(Math.toIntExact(offset));
+    }
+    if (limit >= 0) {
+      query.setMaxResults(limit);
+    }
+
+    long start = System.nanoTime();
+    List<?> rows = query.getResultList();
+    indexAdvisor.record(shape, System.nanoTime() - start);
+    List<MemberTeamDto> result = new ArrayList<>(rows.size());
+    for (Object row : rows) {
+      Object[] columns = (Object[]) row;
+      if (teams != null) {
+        Long teamId = (Long) columns[3];
+        result.add(new MemberTeamDto((Long) columns[0], (String) columns[1], (Integer) columns[2],
+            teamId, teams.nameOf(teamId)));
+      } else {
+        result.add(PROJECTION.newInstance(columns));
+      }
+    }
+    return result;
+  }
+
+  public long count(MemberSearchCondition condition) {
+    int shape = shapeOf(condition);
+    List<Long> memberIds = memberIds(shape, condition);
+    if (memberIds != null) {
+      if (memberIds.isEmpty()) {
+        return 0;
+      }
+      shape |= MEMBER_IDS;
+    }
+    TeamCache.Snapshot teams = teamCache.snapshot();
+    List<Long> teamIds = teams == null ? null : teamIds(teams, shape, condition);
+    if (teamIds != null && teamIds.isEmpty()) {
+      return 0;
+    }
+    String jpql = template(countTemplates, shape, true, teams != null);
+    Query query = bind(QueryDeadline.apply(em, em.createQuery(jpql)), shape, condition, teamIds,
+        memberIds);
+    long start = System.nanoTime();
+    Number count = (Number) query.getSingleResult();
+    indexAdvisor.record(shape, System.nanoTime() - start);
+    return count.longValue();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public double getHitRate() {
+    long hit = hits.get();
+    long total = hit + misses.get();
+    return total == 0 ? 0 : (double) hit / total;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("member.search.template", hits, AtomicLong::get)
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("member.search.template", misses, AtomicLong::get)
+        .tag("result", "miss")
+        .register(registry);
+  }
+
+  static int shapeOf(MemberSearchCondition condition) {
+    int shape = 0;
+    if (hasText(condition.getUsername())) {
+      shape |= USERNAME;
+    }
+    if (hasText(condition.getTeamName())) {
+      shape |= TEAM_NAME;
+    }
+    if (condition.getAgeGoe() != null) {
+      shape |= AGE_GOE;
+    }
+    if (condition.getAgeLoe() != null) {
+      shape |= AGE_LOE;
+    }
+    if (hasText(condition.getUsernameContains())) {
+      shape |= USERNAME_CONTAINS;
+    }
+    if (hasText(condition.getUsernameStartsWith())) {
+      shape |= USERNAME_STARTS_WITH;
+    }
+    return shape;
+  }
+
+  /**
+   * username 부분/접두 조건이 없거나 인덱스로 좁힐 수 없으면 null, 후보가 없으면 빈 목록.
+   */
+  private List<Long> memberIds(int shape, MemberSearchCondition condition) {
+    if (!has(shape, USERNAME_CONTAINS) && !has(shape, USERNAME_STARTS_WITH)) {
+      return null;
+    }
+    return usernameIndex.candidates(condition);
+  }
+
+  /**
+   * teamName 조건이 없으면 null, 해당 이름의 팀이 없으면 빈 목록.
+   */
+  private static List<Long> teamIds(TeamCache.Snapshot teams, int shape,
+      MemberSearchCondition condition) {
+    return has(shape, TEAM_NAME) ? teams.idsByName(condition.getTeamName()) : null;
+  }
+
+  private String template(AtomicReferenceArray<String> templates, int shape, boolean count,
+      boolean joinless) {
+    int index = joinless ? shape | JOINLESS : shape;
+    String jpql = templates.get(index);
+    if (jpql != null) {
+      hits.incrementAndGet();
+      return jpql;
+    }
+    misses.incrementAndGet();
+    JPAQuery<?> query;
+    if (count) {
+      query = queryFactory.select(member.count()).from(member);
+    } else if (joinless) {
+      query = queryFactory.select(member.id, member.username, member.age, member.team.id)
+          .from(member);
+    } else {
+      query = queryFactory.select(PROJECTION).from(member);
+    }
+    if (!joinless) {
+      query.leftJoin(member.team, team);
+    }
+    jpql = query
+        .where(
+            has(shape, USERNAME) ? param(member.username, "username") : null,
+            has(shape, MEMBER_IDS)
+                ? Expressions.booleanTemplate("{0} in (:memberIds)", member.id) : null,
+            has(shape, USERNAME_CONTAINS) ? like(member.username, "usernameContains") : null,
+            has(shape, USERNAME_STARTS_WITH) ? like(member.username, "usernameStartsWith") : null,
+            has(shape, TEAM_NAME) && joinless
+                ? Expressions.booleanTemplate("{0} in (:teamIds)", member.team.id) : null,
+            has(shape, TEAM_NAME) && !joinless ? param(team.name, "teamName") : null,
+            has(shape, AGE_GOE) ? Expressions.booleanTemplate("{0} >= :ageGoe", member.age) : null,
+            has(shape, AGE_LOE) ? Expressions.booleanTemplate("{0} <= :ageLoe", member.age) : null
+        )
+        .toString();
+    log.debug("member search template shape={} count={} joinless={}: {}",
+        shape, count, joinless, jpql);
+    templates.set(index, jpql);
+    return jpql;
+  }
+
+  private Query bind(Query query, int shape, MemberSearchCondition condition,
+      List<Long> teamIds, List<Long> memberIds) {
+    if (has(shape, USERNAME)) {
+      query.setParameter("username", condition.getUsername());
+    }
+    if (has(shape, MEMBER_IDS)) {
+      query.setParameter("memberIds", memberIds);
+    }
+    if (has(shape, USERNAME_CONTAINS)) {
+      query.setParameter("usernameContains",
+          "%" + UsernameIndex.escapeLike(condition.getUsernameContains()) + "%");
+    }
+    if (has(shape, USERNAME_STARTS_WITH)) {
+      query.setParameter("usernameStartsWith",
+          UsernameIndex.escapeLike(condition.getUsernameStartsWith()) + "%");
+    }
+    if (has(shape, TEAM_NAME)) {
+      if (teamIds != null) {
+        query.setParameter("teamIds", teamIds);
+      } else {
+        query.setParameter("teamName", condition.getTeamName());
+      }
+    }
+    if (has(shape, AGE_GOE)) {
+      query.setParameter("ageGoe", condition.getAgeGoe());
+    }
+    if (has(shape, AGE_LOE)) {
+      query.setParameter("ageLoe", condition.getAgeLoe());
+    }
+    return query;
+  }
+
+  private static boolean has(int shape, int flag) {
+    return (shape & flag) != 0;
+  }
+
+  private static BooleanExpression param(Expression<?> path, String name) {
+    return Expressions.booleanTemplate("{0} = :" + name, path);
+  }
+
+  private static BooleanExpression like(Expression<?> path, String name) {
+    return Expressions.booleanTemplate("{0} like :" + name + " escape '!'", path);
+  }
+}
@@ -0,0 +1,170 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.datasource.PrimaryReads;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EntityChangeNotifier;
+
+/**
+ * Team 의 id 와 이름을 통째로 들고 있는 캐시. Team 은 작고 거의 바뀌지 않으므로
+ * 검색에서 team.name 조건을 member.team.id 조건으로 바꾸고 조인 없이 teamName 을 채우는 데 쓴다.
+ * <p>
+ * TTL 이 지나거나 Team 이 변경되면 다시 읽는다. Member 변경은 캐시 내용과 관계없으므로 무효화하지 않는다.
+ * Team 변경 직후에는 복제본에 아직 반영되지 않았을 수 있으므로 primary 에서 읽는다({@link PrimaryReads}).
+ * 쓰기 트랜잭션 안이거나 팀 수가 max-size 를 넘으면 {@link #snapshot()} 이 null 을 돌려주므로 호출하는 쪽은
+ * 조인으로 조회해야 한다.
+ */
+@Slf4j
+@Component
+public class TeamCache {
+
+  private final Supplier<List<TeamInfo>> loader;
+  private final PrimaryReads primaryReads;
+  private final boolean enabled;
+  private final long ttlNanos;
+  private final int maxSize;
+
+  private Snapshot snapshot;
+  private long generation;
+  private Long invalidatedAt;
+
+  @Autowired
+  public TeamCache(JPAQueryFactory queryFactory,
+      EntityChangeNotifier notifier,
+      PrimaryReads primaryReads,
+      @Value("${querydsl.team-cache.enabled:true}") boolean enabled,
+      @Value("${querydsl.team-cache.ttl:5m}") Duration ttl,
+      @Value("${querydsl.team-cache.max-size:10000}") int maxSize) {
+    this(() -> loadTeams(queryFactory), notifier, primaryReads, enabled, ttl, maxSize);
+  }
+
+  TeamCache(Supplier<List<TeamInfo>> loader, EntityChangeNotifier notifier,
+      PrimaryReads primaryReads, boolean enabled, Duration ttl, int maxSize) {
+    this.loader = loader;
+    this.primaryReads = primaryReads;
+    this.enabled = enabled;
+    this.ttlNanos = ttl.toNanos();
+    this.maxSize = maxSize;
+    notifier.subscribe(type -> {
+      if (type == Team.class) {
+        invalidate();
+      }
+    });
+  }
+
+  /**
+   * @return 현재 팀 목록. 캐시를 쓸 수 없으면 null
+   */
+  public Snapshot snapshot() {
+    if (!enabled || inWriteTransaction()) {
+      return null;
+    }
+    long now = System.nanoTime();
+    long generationAtLoad;
+    Long changedAt;
+    synchronized (this) {
+      if (snapshot != null && now - snapshot.loadedAt < ttlNanos) {
+        return snapshot.usable ? snapshot : null;
+      }
+      generationAtLoad = generation;
+      changedAt = invalidatedAt;
+    }
+    List<TeamInfo> teams = primaryReads.readSince(changedAt, loader);
+    Snapshot loaded = new Snapshot(teams, now, teams.size() <= maxSize);
+    log.debug("team cache loaded {} teams", teams.size());
+    synchronized (this) {
+      // 읽는 도중 무효화되었다면 변경 전 값일 수 있으므로 저장하지 않는다.
+      if (generation == generationAtLoad) {
+        snapshot = loaded;
+      }
+    }
+    return loaded.usable ? loaded : null;
+  }
+
+  public synchronized void invalidate() {
+    snapshot = null;
+    generation++;
+    invalidatedAt = System.nanoTime();
+  }
+
+  private static List<TeamInfo> loadTeams(JPAQueryFactory queryFactory) {
+    List<Tuple> rows = queryFactory
+        .select(team.id, team.name)
+        .from(team)
+        .fetch();
+    List<TeamInfo> teams = new ArrayList<>(rows.size());
+    for (Tuple row : rows) {
+      teams.add(new TeamInfo(row.get(team.id), row.get(team.name)));
+    }
+    return teams;
+  }
+
+  private boolean inWriteTransaction() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class TeamInfo {
+
+    private final Long id;
+    private final String name;
+  }
+
+  public static class Snapshot {
+
+    private final Map<Long, TeamInfo> byId = new HashMap<>();
+    private final Map<String, List<Long>> idsByName = new HashMap<>();
+    private final long loadedAt;
+    private final boolean usable;
+
+    private Snapshot(List<TeamInfo> teams, long loadedAt, boolean usable) {
+      this.loadedAt = loadedAt;
+      this.usable = usable;
+      if (usable) {
+        for (TeamInfo info : teams) {
+          byId.put(info.getId(), info);
+          idsByName.computeIfAbsent(info.getName(), name -> new ArrayList<>()).add(info.getId());
+        }
+      }
+    }
+
+    public TeamInfo get(Long teamId) {
+      return teamId == null ? null : byId.get(teamId);
+    }
+
+    public String nameOf(Long teamId) {
+      TeamInfo info = get(teamId);
+      return info == null ? null : info.getName();
+    }
+
+    /**
+     * 팀 이름은 유일하지 않으므로 같은 이름의 모든 id 를 돌려준다. 없으면 빈 목록.
+     */
+    public List<Long> idsByName(String name) {
+      return idsByName.getOrDefault(name, Collections.emptyList());
+    }
+
+    public int size() {
+      return byId.size();
+    }
+  }
+}
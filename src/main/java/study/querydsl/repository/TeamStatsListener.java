@@ -0,0 +1,169 @@
+package study.querydsl.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Objects;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EntityChangeNotifier;
+
+/**
+ * Member 의 insert/update/delete(changeTeam 포함)를 받아 같은 트랜잭션, 같은 커넥션에서 team_stats 를 갱신한다.
+ * <p>
+ * team_stats 행은 Team 이 insert 될 때 만들어 두므로 회원 변경은 항상 UPDATE 하나다. 첫 회원을 동시에 넣는
+ * 트랜잭션들도 같은 행의 잠금을 차례로 잡을 뿐 INSERT 가 부딪치지 않는다. 행이 없는 팀(벌크 DML 로 만든 팀)은
+ * 재집계 전까지 갱신하지 않는다.
+ * <p>
+ * 빠지는 회원의 나이가 현재 최소/최대와 같으면 새 최소/최대를 알 수 없으므로 extremes_stale 만 켜 둔다.
+ * 벌크 DML 은 이 리스너를 거치지 않으므로 {@link TeamStatsReconciler} 가 다시 맞춘다. 이전 상태를 모르는
+ * update 도 벌크 변경으로 알려 재집계에 맡긴다.
+ */
+@Component
+public class TeamStatsListener implements PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener {
+
+  private static final String ADD =
+      "update team_stats set member_count = member_count + 1, age_sum = age_sum + ?,"
+          + " min_age = least(coalesce(min_age, ?), ?), max_age = greatest(coalesce(max_age, ?), ?)"
+          + " where team_id = ?";
+  private static final String INSERT_TEAM =
+      "insert into team_stats (team_id, member_count, age_sum, min_age, max_age, extremes_stale)"
+          + " values (?, 0, 0, null, null, false)";
+  private static final String REMOVE =
+      "update team_stats set member_count = member_count - 1, age_sum = age_sum - ?,"
+          + " extremes_stale = extremes_stale or min_age >= ? or max_age <= ?"
+          + " where team_id = ?";
+  private static final String DELETE_TEAM = "delete from team_stats where team_id = ?";
+
+  private final transient EntityManagerFactory entityManagerFactory;
+  private final transient EntityChangeNotifier notifier;
+
+  public TeamStatsListener(EntityManagerFactory entityManagerFactory,
+      EntityChangeNotifier notifier) {
+    this.entityManagerFactory = entityManagerFactory;
+    this.notifier = notifier;
+  }
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_INSERT, this);
+    registry.appendListeners(EventType.POST_UPDATE, this);
+    registry.appendListeners(EventType.POST_DELETE, this);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    if (event.getEntity() instanceof Member) {
+      EntityPersister persister = event.getPersister();
+      add(event.getSession(), teamId(persister, event.getState()), age(persister, event.getState()));
+    } else if (event.getEntity() instanceof Team) {
+      execute(event.getSession(), INSERT_TEAM, event.getId());
+    }
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    if (!(event.getEntity() instanceof Member)) {
+      return;
+    }
+    EntityPersister persister = event.getPersister();
+    Object[] oldState = event.getOldState();
+    Long newTeamId = teamId(persister, event.getState());
+    int newAge = age(persister, event.getState());
+    if (oldState == null) {
+      // 준영속 엔티티를 merge 없이 update 하면 이전 상태를 모른다. 벌크 변경처럼 재집계에 맡긴다.
+      notifier.notifyBulkChanged(Member.class);
+      return;
+    }
+    Long oldTeamId = teamId(persister, oldState);
+    int oldAge = age(persister, oldState);
+    if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+      return;
+    }
+    remove(event.getSession(), oldTeamId, oldAge);
+    add(event.getSession(), newTeamId, newAge);
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    EntityPersister persister = event.getPersister();
+    if (event.getEntity() instanceof Member) {
+      Object[] state = event.getDeletedState();
+      remove(event.getSession(), teamId(persister, state), age(persister, state));
+    } else if (event.getEntity() instanceof Team) {
+      execute(event.getSession(), DELETE_TEAM, event.getId());
+    }
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return false;
+  }
+
+  /**
+   * Hibernate 5 에서는 아직 추상 메서드라 구현해야 한다. Hibernate 는 requiresPostCommitHandling 을 부른다.
+   */
+  @Deprecated
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return requiresPostCommitHandling(persister);
+  }
+
+  private void add(SharedSessionContractImplementor session, Long teamId, int age) {
+    if (teamId != null) {
+      execute(session, ADD, age, age, age, age, age, teamId);
+    }
+  }
+
+  private void remove(SharedSessionContractImplementor session, Long teamId, int age) {
+    if (teamId != null) {
+      execute(session, REMOVE, age, age, age, teamId);
+    }
+  }
+
+  private static int execute(SharedSessionContractImplementor session, String sql,
+      Object... params) {
+    Connection connection = session.getJdbcCoordinator().getLogicalConnection()
+        .getPhysicalConnection();
+    PreparedStatement ps = null;
+    try {
+      ps = connection.prepareStatement(sql);
+      for (int i = 0; i < params.length; i++) {
+        ps.setObject(i + 1, params[i]);
+      }
+      return ps.executeUpdate();
+    } catch (SQLException e) {
+      throw new IllegalStateException("Failed to update team_stats", e);
+    } finally {
+      JdbcUtils.closeStatement(ps);
+    }
+  }
+
+  private static Long teamId(EntityPersister persister, Object[] state) {
+    Team team = (Team) state[persister.getEntityMetamodel().getPropertyIndex("team")];
+    return team == null ? null : team.getId();
+  }
+
+  private static int age(EntityPersister persister, Object[] state) {
+    return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+  }
+}
@@ -0,0 +1,94 @@
+package study.querydsl.repository;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EntityChangeNotifier;
+
+/**
+ * 벌크 DML 로 Member/Team 이 바뀌면 team_stats 를 더 이상 믿을 수 없으므로 dirty 로 표시하고,
+ * 주기적으로(querydsl.team-stats.reconcile-cron) member 테이블에서 다시 집계한다.
+ * dirty 인 동안 {@link TeamStatsRepository} 는 member 테이블을 직접 집계한다.
+ * <p>
+ * 재집계는 먼저 team_stats 의 모든 행을 잠근다. 이미 행을 갱신한 트랜잭션이 커밋할 때까지 기다린 뒤 집계하고,
+ * 그 뒤에 들어오는 {@link TeamStatsListener} 의 갱신은 재집계가 커밋될 때까지 기다렸다가 새 값 위에 더해진다.
+ * 행을 지우고 다시 넣지 않고 제자리에서 고치므로 기다리던 갱신이 사라진 행을 만나는 일이 없다.
+ */
+@Slf4j
+@Component
+public class TeamStatsReconciler {
+
+  private static final String LOCK = "select team_id from team_stats for update";
+  private static final String RECOUNT =
+      "update team_stats s set"
+          + " member_count = (select count(*) from member m where m.team_id = s.team_id),"
+          + " age_sum = (select coalesce(sum(m.age), 0) from member m where m.team_id = s.team_id),"
+          + " min_age = (select min(m.age) from member m where m.team_id = s.team_id),"
+          + " max_age = (select max(m.age) from member m where m.team_id = s.team_id),"
+          + " extremes_stale = false";
+  private static final String DELETE_GONE =
+      "delete from team_stats where team_id not in (select id from team)";
+  private static final String INSERT_MISSING =
+      "insert into team_stats (team_id, member_count, age_sum, min_age, max_age, extremes_stale)"
+          + " select t.id, count(m.member_id), coalesce(sum(m.age), 0), min(m.age), max(m.age), false"
+          + " from team t left join member m on m.team_id = t.id"
+          + " where not exists (select 1 from team_stats s where s.team_id = t.id)"
+          + " group by t.id";
+
+  private final EntityManager em;
+  private final TransactionTemplate reconcileTransaction;
+  private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+  public TeamStatsReconciler(EntityManager em, PlatformTransactionManager transactionManager,
+      EntityChangeNotifier notifier) {
+    this.em = em;
+    this.reconcileTransaction = new TransactionTemplate(transactionManager);
+    reconcileTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    notifier.subscribeBulk(type -> {
+      if (type == Member.class || type == Team.class) {
+        dirty.set(true);
+      }
+    });
+  }
+
+  public boolean isDirty() {
+    return dirty.get();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(cron = "${querydsl.team-stats.reconcile-cron:0 * * * * *}")
+  public void reconcileIfDirty() {
+    if (dirty.get()) {
+      reconcile();
+    }
+  }
+
+  /**
+   * 새 트랜잭션에서 team_stats 를 다시 집계한다. 도중에 들어온 벌크 변경은 다시 dirty 로 남는다.
+   * 실패하면(예: 동시에 만들어진 팀과 INSERT 가 부딪치면) dirty 로 남겨 다음 주기에 다시 한다.
+   */
+  public void reconcile() {
+    dirty.set(false);
+    try {
+      int teams = reconcileTransaction.execute(status -> {
+        em.createNativeQuery(LOCK).getResultList();
+        int recounted = em.createNativeQuery(RECOUNT).executeUpdate();
+        int deleted = em.createNativeQuery(DELETE_GONE).executeUpdate();
+        return recounted - deleted + em.createNativeQuery(INSERT_MISSING).executeUpdate();
+      });
+      log.info("team_stats reconciled for {} teams", teams);
+    } catch (RuntimeException e) {
+      dirty.set(true);
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamStats.teamStats;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamAgeStats;
+
+/**
+ * 팀별 나이 집계(count/sum/avg/min/max)를 team_stats 요약 테이블에서 팀 수에 비례하는 비용으로 조회한다.
+ * 벌크 변경 뒤 아직 재집계되지 않았으면 member 테이블을 직접 집계한다.
+ */
+@Repository
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TeamStatsRepository {
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TeamStatsReconciler reconciler;
+
+  public List<TeamAgeStats> findAll() {
+    if (reconciler.isDirty()) {
+      return aggregateMembers();
+    }
+    // team_stats 는 회원 변경이 flush 될 때 갱신된다.
+    em.flush();
+    List<Tuple> rows = queryFactory
+        .select(teamStats.teamId, team.name, teamStats.memberCount, teamStats.ageSum,
+            teamStats.minAge, teamStats.maxAge, teamStats.extremesStale)
+        .from(teamStats)
+        .join(team).on(team.id.eq(teamStats.teamId))
+        .where(teamStats.memberCount.gt(0))
+        .orderBy(team.name.asc(), teamStats.teamId.asc())
+        .fetch();
+
+    List<TeamAgeStats> result = new ArrayList<>(rows.size());
+    for (Tuple row : rows) {
+      Long teamId = row.get(teamStats.teamId);
+      Integer minAge = row.get(teamStats.minAge);
+      Integer maxAge = row.get(teamStats.maxAge);
+      if (Boolean.TRUE.equals(row.get(teamStats.extremesStale))) {
+        // (team_id, age) 인덱스로 팀마다 한 번씩만 찾는다.
+        Tuple extremes = queryFactory
+            .select(member.age.min(), member.age.max())
+            .from(member)
+            .where(member.team.id.eq(teamId))
+            .fetchOne();
+        minAge = extremes.get(member.age.min());
+        maxAge = extremes.get(member.age.max());
+      }
+      result.add(new TeamAgeStats(teamId, row.get(team.name), row.get(teamStats.memberCount),
+          row.get(teamStats.ageSum), minAge, maxAge));
+    }
+    return result;
+  }
+
+  /**
+   * 팀 이름은 유일하지 않으므로 같은 이름의 팀을 모두 더한다.
+   */
+  public long countByTeamName(String teamName) {
+    if (reconciler.isDirty()) {
+      return queryFactory
+          .select(member.count())
+          .from(member)
+          .join(member.team, team)
+          .where(team.name.eq(teamName))
+          .fetchOne();
+    }
+    em.flush();
+    Long count = queryFactory
+        .select(teamStats.memberCount.sum())
+        .from(teamStats)
+        .join(team).on(team.id.eq(teamStats.teamId))
+        .where(team.name.eq(teamName))
+        .fetchOne();
+    return count == null ? 0 : count;
+  }
+
+  private List<TeamAgeStats> aggregateMembers() {
+    List<Tuple> rows = queryFactory
+        .select(team.id, team.name, member.count(), member.age.sum(), member.age.min(),
+            member.age.max())
+        .from(member)
+        .join(member.team, team)
+        .groupBy(team.id, team.name)
+        .orderBy(team.name.asc(), team.id.asc())
+        .fetch();
+
+    List<TeamAgeStats> result = new ArrayList<>(rows.size());
+    for (Tuple row : rows) {
+      // JPQL sum(int) 은 Long 을 돌려준다.
+      Number ageSum = (Number) row.toArray()[3];
+      result.add(new TeamAgeStats(row.get(team.id), row.get(team.name), row.get(member.count()),
+          ageSum.longValue(), row.get(member.age.min()), row.get(member.age.max())));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,493 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.EntityChangeNotifier;
+
+/**
+ * Member.username 의 메모리 인덱스. 트라이그램(3글자) 포스팅으로 usernameContains 를, 정렬된 이름 목록으로
+ * usernameStartsWith 를 후보 member id 목록으로 바꿔서, like 조건 앞에 id in (...) 을 붙인다.
+ * <p>
+ * 추가는 {@link UsernameIndexListener} 가 flush 될 때 즉시 반영하고, 삭제와 이름 변경의 이전 값 제거는 커밋된 뒤에
+ * 반영한다. 그래서 인덱스는 항상 실제 행의 상위 집합이고, 결과는 DB 의 like 조건으로 다시 걸러진다.
+ * <p>
+ * 재구축한 인덱스(base)는 발행한 뒤 바꾸지 않는다. 그 뒤의 추가는 작은 delta 에, 삭제와 이름 변경은 base 에서
+ * 가릴 id(replaced)로 모은다. 후보 계산은 잠금 안에서 delta 만 보고, base 는 잠금 밖에서 교집합을 구한다.
+ * 가장 작은 포스팅이 max-candidates 보다 크면 복사하기 전에 포기한다.
+ * <p>
+ * 벌크 DML 로 Member 가 바뀌면 인덱스를 믿을 수 없으므로 다시 만들 때까지(시작 시, rebuild-cron,
+ * /actuator/usernameindex 에 POST) 후보를 만들지 않는다. delta 까지 합친 포스팅 수가 max-postings 를 넘어도
+ * 다시 만들어 delta 를 합치고, 다시 만든 인덱스도 넘으면 인덱스를 버린다.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "usernameindex")
+public class UsernameIndex {
+
+  static final int GRAM = 3;
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final TransactionTemplate rebuildTransaction;
+  private final boolean enabled;
+  private final long maxPostings;
+  private final int maxCandidates;
+
+  private volatile Postings base;
+  private Postings delta;
+  private Set<Long> replaced;
+  private List<Object[]> addedDuringRebuild;
+  private boolean stale = true;
+  private boolean overBudget;
+
+  @Autowired
+  public UsernameIndex(EntityManager em, JPAQueryFactory queryFactory,
+      PlatformTransactionManager transactionManager, EntityChangeNotifier notifier,
+      @Value("${querydsl.username-index.enabled:true}") boolean enabled,
+      @Value("${querydsl.username-index.max-postings:2000000}") long maxPostings,
+      @Value("${querydsl.username-index.max-candidates:1000}") int maxCandidates) {
+    this.em = em;
+    this.queryFactory = queryFactory;
+    this.rebuildTransaction = new TransactionTemplate(transactionManager);
+    rebuildTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    rebuildTransaction.setReadOnly(true);
+    this.enabled = enabled;
+    this.maxPostings = maxPostings;
+    this.maxCandidates = maxCandidates;
+    if (notifier != null) {
+      notifier.subscribeBulk(type -> {
+        if (type == Member.class) {
+          markStale();
+        }
+      });
+    }
+  }
+
+  UsernameIndex(long maxPostings, int maxCandidates) {
+    this(null, null, null, null, true, maxPostings, maxCandidates);
+  }
+
+  /**
+   * usernameContains, usernameStartsWith 조건. 인덱스로 후보를 좁힐 수 있으면 id in (...) 도 붙인다.
+   *
+   * @return 두 조건이 모두 없으면 null
+   */
+  public BooleanExpression usernameMatches(MemberSearchCondition condition) {
+    BooleanExpression like = null;
+    if (hasText(condition.getUsernameContains())) {
+      like = member.username.contains(condition.getUsernameContains());
+    }
+    if (hasText(condition.getUsernameStartsWith())) {
+      BooleanExpression startsWith = member.username.startsWith(condition.getUsernameStartsWith());
+      like = like == null ? startsWith : like.and(startsWith);
+    }
+    if (like == null) {
+      return null;
+    }
+    List<Long> ids = candidates(condition);
+    return ids == null ? like : member.id.in(ids).and(like);
+  }
+
+  /**
+   * @return 후보 member id. 좁힐 수 없으면 null, 후보가 없으면 빈 목록
+   */
+  public List<Long> candidates(MemberSearchCondition condition) {
+    String contains = condition.getUsernameContains();
+    String prefix = condition.getUsernameStartsWith();
+    if (em != null && TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      // 새 회원은 flush 될 때 인덱스에 들어간다.
+      em.flush();
+    }
+    Postings snapshot;
+    Set<Long> added;
+    synchronized (this) {
+      if (base == null || stale) {
+        return null;
+      }
+      snapshot = base;
+      added = match(delta, contains, prefix);
+    }
+    if (added == null) {
+      return null;
+    }
+    Set<Long> ids = match(snapshot, contains, prefix);
+    if (ids == null) {
+      return null;
+    }
+    synchronized (this) {
+      if (snapshot != base) {
+        return null;
+      }
+      ids.removeAll(replaced);
+    }
+    ids.addAll(added);
+    if (ids.size() > maxCandidates) {
+      return null;
+    }
+    return ids.isEmpty() ? List.of() : new ArrayList<>(ids);
+  }
+
+  /**
+   * @return 새로 만든 후보 집합. 좁힐 수 없거나 max-candidates 를 넘으면 null
+   */
+  private Set<Long> match(Postings postings, String contains, String prefix) {
+    Set<Long> byGrams = hasText(contains) ? postings.containing(contains, maxCandidates) : null;
+    Set<Long> byPrefix = hasText(prefix) ? postings.startingWith(prefix, maxCandidates) : null;
+    if (byGrams == null) {
+      return byPrefix;
+    }
+    if (byPrefix != null) {
+      byGrams.retainAll(byPrefix);
+    }
+    return byGrams;
+  }
+
+  /**
+   * like 패턴에 넣을 수 있도록 '!' 를 이스케이프 문자로 % 와 _ 를 이스케이프한다.
+   */
+  public static String escapeLike(String value) {
+    return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+  }
+
+  void onPersist(Long id, String username) {
+    add(id, username);
+  }
+
+  void onUpdate(Long id, String username) {
+    if (username != null && username.equals(indexed(id))) {
+      // 나이나 팀만 바뀐 경우
+      return;
+    }
+    String previous = add(id, username);
+    if (previous != null && !previous.equals(username)) {
+      afterCommit(() -> remove(id, previous));
+    }
+  }
+
+  void onRemove(Long id, String username) {
+    afterCommit(() -> remove(id, username));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(cron = "${querydsl.username-index.rebuild-cron:0 * * * * *}")
+  public void rebuildIfStale() {
+    boolean needed;
+    synchronized (this) {
+      needed = enabled && stale;
+    }
+    if (needed) {
+      rebuild();
+    }
+  }
+
+  /**
+   * member 테이블을 읽어 인덱스를 새로 만든다. 읽는 동안 추가된 이름은 새 인덱스에도 반영한다.
+   */
+  @WriteOperation
+  public Status rebuild() {
+    if (!enabled) {
+      return status();
+    }
+    rebuild(source -> rebuildTransaction.executeWithoutResult(status -> {
+      try (Stream<Tuple> rows = queryFactory
+          .select(member.id, member.username)
+          .from(member)
+          .setHint(QueryHints.FETCH_SIZE, 1000)
+          .setHint(QueryHints.READ_ONLY, true)
+          .stream()) {
+        rows.forEach(row -> source.accept(row.get(member.id), row.get(member.username)));
+      }
+    }));
+    return status();
+  }
+
+  /**
+   * @param scan 모든 (id, username) 을 넘겨준다
+   */
+  void rebuild(Consumer<BiConsumer<Long, String>> scan) {
+    synchronized (this) {
+      stale = false;
+      addedDuringRebuild = new ArrayList<>();
+    }
+    Postings fresh = new Postings();
+    boolean[] fits = {true};
+    try {
+      scan.accept((id, username) -> {
+        if (fits[0]) {
+          fresh.add(id, username);
+          fits[0] = fresh.size <= maxPostings;
+        }
+      });
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        stale = true;
+        addedDuringRebuild = null;
+      }
+      throw e;
+    }
+    synchronized (this) {
+      for (Object[] added : addedDuringRebuild) {
+        fresh.add((Long) added[0], (String) added[1]);
+      }
+      addedDuringRebuild = null;
+      overBudget = !fits[0] || fresh.size > maxPostings;
+      publish(overBudget ? null : fresh);
+      if (overBudget) {
+        log.warn("username index exceeds {} postings, disabled until the next rebuild",
+            maxPostings);
+      } else {
+        log.info("username index rebuilt: {} names, {} postings", fresh.usernames.size(),
+            fresh.size);
+      }
+    }
+  }
+
+  @ReadOperation
+  public synchronized Status status() {
+    if (base == null) {
+      return new Status(enabled, false, stale, overBudget, 0, 0, maxPostings);
+    }
+    int names = base.usernames.size() - replaced.size();
+    for (Long id : delta.usernames.keySet()) {
+      if (!base.usernames.containsKey(id) || replaced.contains(id)) {
+        names++;
+      }
+    }
+    return new Status(enabled, true, stale, overBudget, names, base.size + delta.size,
+        maxPostings);
+  }
+
+  private void publish(Postings fresh) {
+    base = fresh;
+    delta = fresh == null ? null : new Postings();
+    replaced = fresh == null ? null : new HashSet<>();
+  }
+
+  private synchronized void markStale() {
+    stale = true;
+  }
+
+  /**
+   * @return 인덱스에 있는 이 id 의 이름. 인덱스가 없으면 null
+   */
+  private synchronized String indexed(Long id) {
+    if (base == null) {
+      return null;
+    }
+    if (delta.usernames.containsKey(id)) {
+      return delta.usernames.get(id);
+    }
+    return replaced.contains(id) ? null : base.usernames.get(id);
+  }
+
+  /**
+   * @return 이 id 의 이전 이름
+   */
+  private synchronized String add(Long id, String username) {
+    if (addedDuringRebuild != null) {
+      addedDuringRebuild.add(new Object[]{id, username});
+    }
+    if (base == null) {
+      return null;
+    }
+    String previous = indexed(id);
+    delta.add(id, username);
+    if (base.size + delta.size > maxPostings) {
+      log.warn("username index exceeds {} postings, disabled until the next rebuild",
+          maxPostings);
+      publish(null);
+      stale = true;
+    }
+    return previous;
+  }
+
+  private synchronized void remove(Long id, String username) {
+    if (base == null) {
+      return;
+    }
+    delta.remove(id, username);
+    if (username != null && username.equals(base.usernames.get(id))) {
+      replaced.add(id);
+    }
+  }
+
+  private static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+
+  static Set<String> grams(String value) {
+    Set<String> grams = new LinkedHashSet<>();
+    for (int i = 0; i + GRAM <= value.length(); i++) {
+      grams.add(value.substring(i, i + GRAM));
+    }
+    return grams;
+  }
+
+  /**
+   * size 는 트라이그램 포스팅 수와 이름 목록 항목 수의 합이다.
+   */
+  private static class Postings {
+
+    private final Map<Long, String> usernames = new HashMap<>();
+    private final Map<String, Set<Long>> byGram = new HashMap<>();
+    private final TreeMap<String, Set<Long>> byName = new TreeMap<>();
+    private long size;
+
+    /**
+     * @return 이 id 의 이전 이름. 이전 이름의 포스팅은 {@link #remove} 전까지 남겨 둔다.
+     */
+    String add(Long id, String username) {
+      if (username == null) {
+        return usernames.get(id);
+      }
+      String previous = usernames.put(id, username);
+      for (String gram : grams(username)) {
+        if (byGram.computeIfAbsent(gram, k -> new HashSet<>()).add(id)) {
+          size++;
+        }
+      }
+      if (byName.computeIfAbsent(username, k -> new HashSet<>()).add(id)) {
+        size++;
+      }
+      return previous;
+    }
+
+    /**
+     * 지금 이름과 겹치지 않는 username 의 포스팅을 지운다. 지금 이름이 username 이면 모두 지운다.
+     */
+    void remove(Long id, String username) {
+      if (username == null) {
+        return;
+      }
+      String currentName = usernames.get(id);
+      boolean deleted = username.equals(currentName);
+      if (deleted) {
+        usernames.remove(id);
+      }
+      Set<String> kept = deleted || currentName == null ? Set.of() : grams(currentName);
+      for (String gram : grams(username)) {
+        if (!kept.contains(gram)) {
+          size -= removeFrom(byGram, gram, id);
+        }
+      }
+      if (deleted || !username.equals(currentName)) {
+        size -= removeFrom(byName, username, id);
+      }
+    }
+
+    /**
+     * @return 새로 만든 집합. 세 글자보다 짧거나 가장 작은 포스팅이 limit 개를 넘으면 null
+     */
+    Set<Long> containing(String value, int limit) {
+      if (value.length() < GRAM) {
+        return null;
+      }
+      List<Set<Long>> postings = new ArrayList<>();
+      for (String gram : grams(value)) {
+        Set<Long> ids = byGram.get(gram);
+        if (ids == null) {
+          return new HashSet<>();
+        }
+        postings.add(ids);
+      }
+      postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+      if (postings.get(0).size() > limit) {
+        return null;
+      }
+      Set<Long> result = new HashSet<>(postings.get(0));
+      for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+        result.retainAll(postings.get(i));
+      }
+      return result;
+    }
+
+    /**
+     * @return 새로 만든 집합. limit 개를 넘으면 null
+     */
+    Set<Long> startingWith(String prefix, int limit) {
+      Set<Long> result = new HashSet<>();
+      Collection<Set<Long>> matches = byName
+          .subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+      Iterator<Set<Long>> it = matches.iterator();
+      while (it.hasNext()) {
+        result.addAll(it.next());
+        if (result.size() > limit) {
+          return null;
+        }
+      }
+      return result;
+    }
+
+    private static int removeFrom(Map<String, Set<Long>> index, String key, Long id) {
+      Set<Long> ids = index.get(key);
+      if (ids == null || !ids.remove(id)) {
+        return 0;
+      }
+      if (ids.isEmpty()) {
+        index.remove(key);
+      }
+      return 1;
+    }
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Status {
+
+    private final boolean enabled;
+    private final boolean built;
+    private final boolean stale;
+    private final boolean overBudget;
+    private final int names;
+    private final long postings;
+    private final long maxPostings;
+  }
+}
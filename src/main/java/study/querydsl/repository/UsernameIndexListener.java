@@ -0,0 +1,35 @@
+package study.querydsl.repository;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import study.querydsl.entity.Member;
+
+/**
+ * Member 의 JPA 엔티티 리스너. 변경된 username 을 {@link UsernameIndex} 에 반영한다.
+ * <p>
+ * UsernameIndex 는 EntityManager 를 쓰므로, 리스너가 만들어지는 EntityManagerFactory 초기화 중에는 주입할 수
+ * 없다. 주입에 실패하면 SpringBeanContainer 가 주입 없이 리스너를 만들기 때문에 ObjectProvider 로 나중에 찾는다.
+ */
+public class UsernameIndexListener {
+
+  @Autowired
+  private ObjectProvider<UsernameIndex> usernameIndex;
+
+  @PostPersist
+  public void onPersist(Member member) {
+    usernameIndex.getObject().onPersist(member.getId(), member.getUsername());
+  }
+
+  @PostUpdate
+  public void onUpdate(Member member) {
+    usernameIndex.getObject().onUpdate(member.getId(), member.getUsername());
+  }
+
+  @PostRemove
+  public void onRemove(Member member) {
+    usernameIndex.getObject().onRemove(member.getId(), member.getUsername());
+  }
+}
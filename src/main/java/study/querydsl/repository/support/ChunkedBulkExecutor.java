@@ -0,0 +1,173 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.entity.BulkJobCheckpoint;
+
+/**
+ * Querydsl update/delete 를 기본키 구간(chunk-size 만큼의 id 범위)으로 나눠 실행한다.
+ * <p>
+ * 청크마다 새 트랜잭션으로 커밋하므로 한 문장이 전체 행의 락을 오래 잡지 않는다. 청크 실행과
+ * {@link BulkJobCheckpoint} 갱신이 같은 트랜잭션이라, 같은 jobName 으로 다시 실행하면 마지막으로 커밋된
+ * 청크 다음부터 이어서 실행한다. rows-per-second 가 0 보다 크면 그 처리량을 넘지 않도록 청크 사이에 쉰다.
+ * <p>
+ * 처리 대상 id 범위는 작업을 처음 시작할 때 정해지므로 이후에 추가된 행은 처리하지 않는다.
+ */
+@Slf4j
+@Component
+public class ChunkedBulkExecutor {
+
+  private final JPAQueryFactory queryFactory;
+  private final EntityManager em;
+  private final TransactionTemplate chunkTransaction;
+  private final long chunkSize;
+  private final double rowsPerSecond;
+
+  public ChunkedBulkExecutor(JPAQueryFactory queryFactory, EntityManager em,
+      PlatformTransactionManager transactionManager,
+      @Value("${querydsl.bulk.chunk-size:10000}") long chunkSize,
+      @Value("${querydsl.bulk.rows-per-second:0}") double rowsPerSecond) {
+    Assert.isTrue(chunkSize > 0, "Chunk size must be greater than zero!");
+    this.queryFactory = queryFactory;
+    this.em = em;
+    this.chunkSize = chunkSize;
+    this.rowsPerSecond = rowsPerSecond;
+    this.chunkTransaction = new TransactionTemplate(transactionManager);
+    chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * @param where       대상 행 조건. null 이면 전체
+   * @param assignments set 절을 채운다
+   */
+  public BulkJobCheckpoint update(String jobName, EntityPath<?> entity, NumberPath<Long> id,
+      Predicate where, Consumer<JPAUpdateClause> assignments) {
+    return run(jobName, entity, id, where, range -> {
+      JPAUpdateClause clause = queryFactory.update(entity);
+      assignments.accept(clause);
+      return clause.where(where, range).execute();
+    });
+  }
+
+  /**
+   * @param where 대상 행 조건. null 이면 전체
+   */
+  public BulkJobCheckpoint delete(String jobName, EntityPath<?> entity, NumberPath<Long> id,
+      Predicate where) {
+    return run(jobName, entity, id, where,
+        range -> queryFactory.delete(entity).where(where, range).execute());
+  }
+
+  public Optional<BulkJobCheckpoint> findCheckpoint(String jobName) {
+    return Optional.ofNullable(
+        chunkTransaction.execute(status -> em.find(BulkJobCheckpoint.class, jobName)));
+  }
+
+  /**
+   * 체크포인트를 지워서 같은 jobName 으로 처음부터 다시 실행할 수 있게 한다.
+   */
+  public void reset(String jobName) {
+    chunkTransaction.executeWithoutResult(status -> {
+      BulkJobCheckpoint checkpoint = em.find(BulkJobCheckpoint.class, jobName);
+      if (checkpoint != null) {
+        em.remove(checkpoint);
+      }
+    });
+  }
+
+  private BulkJobCheckpoint run(String jobName, EntityPath<?> entity, NumberPath<Long> id,
+      Predicate where, ToLongFunction<Predicate> chunk) {
+    Assert.hasText(jobName, "Job name must not be empty!");
+    BulkJobCheckpoint checkpoint = chunkTransaction.execute(
+        status -> start(jobName, entity, id, where));
+    if (checkpoint.isCompleted()) {
+      return checkpoint;
+    }
+    log.info("bulk job {} started at id {} of {}", jobName, checkpoint.getLastId(),
+        checkpoint.getMaxId());
+
+    long startNanos = System.nanoTime();
+    long rowsThisRun = 0;
+    while (!checkpoint.isCompleted()) {
+      long lower = checkpoint.getLastId();
+      long upper = Math.min(lower + chunkSize, checkpoint.getMaxId());
+      Predicate range = id.gt(lower).and(id.loe(upper));
+      long rowsBefore = checkpoint.getRowsAffected();
+      checkpoint = chunkTransaction.execute(status -> {
+        long rows = chunk.applyAsLong(range);
+        BulkJobCheckpoint current = em.find(BulkJobCheckpoint.class, jobName);
+        current.advance(upper, rows);
+        return current;
+      });
+      rowsThisRun += checkpoint.getRowsAffected() - rowsBefore;
+      log.info("bulk job {} at id {} of {} ({}%), {} rows", jobName, checkpoint.getLastId(),
+          checkpoint.getMaxId(), Math.round(checkpoint.getProgress() * 100),
+          checkpoint.getRowsAffected());
+
+      if (!checkpoint.isCompleted() && !throttle(rowsThisRun, startNanos)) {
+        log.warn("bulk job {} interrupted at id {}", jobName, checkpoint.getLastId());
+        break;
+      }
+    }
+    return checkpoint;
+  }
+
+  private BulkJobCheckpoint start(String jobName, EntityPath<?> entity, NumberPath<Long> id,
+      Predicate where) {
+    BulkJobCheckpoint checkpoint = em.find(BulkJobCheckpoint.class, jobName);
+    if (checkpoint != null) {
+      return checkpoint;
+    }
+    Tuple bounds = queryFactory
+        .select(id.min(), id.max())
+        .from(entity)
+        .where(where)
+        .fetchOne();
+    Long min = bounds == null ? null : bounds.get(id.min());
+    Long max = bounds == null ? null : bounds.get(id.max());
+    checkpoint = min == null
+        ? new BulkJobCheckpoint(jobName, 0, 0)
+        : new BulkJobCheckpoint(jobName, min - 1, max);
+    em.persist(checkpoint);
+    return checkpoint;
+  }
+
+  /**
+   * 지금까지 처리한 행 수를 목표 처리량으로 처리하는 데 걸렸어야 할 시간만큼 기다린다.
+   *
+   * @return 인터럽트되면 false
+   */
+  private boolean throttle(long rows, long startNanos) {
+    if (rowsPerSecond <= 0) {
+      return true;
+    }
+    long expectedNanos = (long) (rows / rowsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    long sleepNanos = expectedNanos - (System.nanoTime() - startNanos);
+    if (sleepNanos <= 0) {
+      return true;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(sleepNanos);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package study.querydsl.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * MemberRepositoryCustom 구현을 {@link ConcurrencyLimiter} 아래에서 실행한다. 컨트롤러에서 이미 허가를 받은
+ * 스레드의 호출은 그대로 통과한다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ConcurrencyLimitAspect {
+
+  private final ConcurrencyLimiter limiter;
+
+  @Around("within(study.querydsl.repository.MemberRepositoryImpl)")
+  public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+    return limiter.execute(
+        joinPoint.getSignature().getDeclaringType().getSimpleName()
+            + "." + joinPoint.getSignature().getName(),
+        joinPoint::proceed);
+  }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.repository.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * {@link ConcurrencyLimiter} 가 호출을 거절했다. 컨트롤러에서는 503 으로 응답한다.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+  private final String reason;
+
+  public ConcurrencyLimitExceededException(String caller, String reason) {
+    super("Concurrency limit exceeded for " + caller + " (" + reason + ")");
+    this.reason = reason;
+  }
+
+  public String getReason() {
+    return reason;
+  }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * {@link ConcurrencyLimiter} 설정. 한도는 initial-limit 에서 시작해 min-limit ~ max-limit 사이에서 움직인다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+  private boolean enabled = true;
+  private int initialLimit = 20;
+  private int minLimit = 2;
+  private int maxLimit = 200;
+  /**
+   * 시간 초과나 느린 응답으로 한도를 줄일 때 곱하는 값. 줄인 뒤에 시작한 호출이 다시 느려져야 또 줄인다.
+   */
+  private double backoffRatio = 0.9;
+  /**
+   * 이보다 오래 걸린 호출은 시간 초과처럼 한도를 줄인다.
+   */
+  private Duration latencyThreshold = Duration.ofSeconds(1);
+  private int maxQueue = 50;
+  /**
+   * 대기열에서 기다리는 최대 시간. 현재 {@link QueryDeadline} 이 더 짧으면 그 기한까지만 기다린다.
+   */
+  private Duration maxWait = Duration.ofMillis(500);
+}
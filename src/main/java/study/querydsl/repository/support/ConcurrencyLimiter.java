@@ -0,0 +1,272 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.SQLTransientException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 조회 동시 실행 수를 AIMD 로 조절한다.
+ * <p>
+ * 한도만큼 실행 중이면 새 호출은 대기열(max-queue)에서 max-wait 까지 기다리고, 대기열이 차 있거나 기다리다 시간이
+ * 지나면 {@link ConcurrencyLimitExceededException} 으로 바로 거절한다. 커넥션 풀을 기다리며 스레드가 모두 묶이기
+ * 전에 넘치는 요청을 버리기 위한 것이다.
+ * <p>
+ * 호출이 끝날 때마다 한도를 고친다. 시간 초과(쿼리 기한, 커넥션 획득 실패 포함)였거나 latency-threshold 보다
+ * 오래 걸렸으면 backoff-ratio 를 곱해 줄이고, 정상이고 한도의 절반 이상을 쓰고 있었으면 1 늘린다. 줄이는 것은 마지막으로
+ * 줄인 뒤에 시작한 호출의 신호일 때만 한다. 그 전부터 실행 중이던 호출은 같은 과부하를 겪은 것이므로 한 번에 몰려
+ * 끝나도 한 번만 줄인다.
+ * <p>
+ * 응답을 쓰는 동안 허가를 쥐는 스트리밍 호출은 {@link #executeUnsampled} 로 실행한다. 동시 실행 수에는 들어가지만
+ * 걸린 시간이 클라이언트 속도에 좌우되므로 한도 조정에는 쓰지 않는다.
+ * <p>
+ * 허가는 스레드에 묶이므로 컨트롤러에서 허가를 받은 뒤 같은 스레드에서 부르는 리포지토리 호출은 다시 세지 않는다.
+ * 비동기 요청은 {@link #acquire(String)} 로 요청 스레드에서 허가를 받아 실행 스레드로 넘긴다. 그래서 실행기 대기열에서
+ * 기다리는 요청도 동시 실행 수에 들어가고, 한도를 넘는 요청은 실행기에 들어가기 전에 이 대기열에서 걸러진다.
+ * 지표는 query.concurrency.limit, query.concurrency.inflight, query.concurrency.queued 게이지와
+ * query.concurrency.rejected 카운터(reason=queue-full|queue-timeout|interrupted)다.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimiter {
+
+  private static final ThreadLocal<Boolean> HOLDING = new ThreadLocal<>();
+
+  private final ConcurrencyLimitProperties properties;
+  private final MeterRegistry registry;
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final Condition available = lock.newCondition();
+  private double limit;
+  private int inFlight;
+  private int queued;
+  private Long lastBackoff;
+
+  public ConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    this.registry = registry;
+    this.limit = Math.min(Math.max(properties.getInitialLimit(), properties.getMinLimit()),
+        properties.getMaxLimit());
+    Gauge.builder("query.concurrency.limit", this, ConcurrencyLimiter::getLimit)
+        .register(registry);
+    Gauge.builder("query.concurrency.inflight", this, ConcurrencyLimiter::getInFlight)
+        .register(registry);
+    Gauge.builder("query.concurrency.queued", this, ConcurrencyLimiter::getQueued)
+        .register(registry);
+  }
+
+  /**
+   * @param caller 거절할 때 메시지에 쓰는 호출 이름
+   */
+  public <T> T execute(String caller, RepositoryMetrics.Invocation<T> invocation)
+      throws Throwable {
+    return execute(caller, invocation, true);
+  }
+
+  /**
+   * 허가는 받지만 걸린 시간과 시간 초과를 한도 조정에 쓰지 않는다.
+   */
+  public <T> T executeUnsampled(String caller, RepositoryMetrics.Invocation<T> invocation)
+      throws Throwable {
+    return execute(caller, invocation, false);
+  }
+
+  /**
+   * 지금 스레드에서 허가를 받아 다른 스레드에서 {@link Permit#execute} 로 쓸 수 있게 돌려준다.
+   */
+  public Permit acquire(String caller) {
+    if (!properties.isEnabled() || HOLDING.get() != null) {
+      return new Permit(false, 0, true);
+    }
+    return new Permit(true, acquirePermit(caller), true);
+  }
+
+  private <T> T execute(String caller, RepositoryMetrics.Invocation<T> invocation,
+      boolean sampled) throws Throwable {
+    if (!properties.isEnabled() || HOLDING.get() != null) {
+      return invocation.proceed();
+    }
+    return new Permit(true, acquirePermit(caller), sampled).execute(invocation);
+  }
+
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueued() {
+    lock.lock();
+    try {
+      return queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return 허가를 받은 시점의 실행 중 호출 수(자신 포함)
+   */
+  private int acquirePermit(String caller) {
+    lock.lock();
+    try {
+      // 먼저 기다리는 호출이 있으면 새 호출도 대기열 뒤에 선다.
+      if (queued == 0 && inFlight < (int) limit) {
+        return ++inFlight;
+      }
+      if (queued >= properties.getMaxQueue()) {
+        throw reject(caller, "queue-full");
+      }
+      long waitNanos = maxWaitNanos();
+      queued++;
+      try {
+        while (inFlight >= (int) limit) {
+          if (waitNanos <= 0) {
+            throw reject(caller, "queue-timeout");
+          }
+          waitNanos = available.awaitNanos(waitNanos);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw reject(caller, "interrupted");
+      } finally {
+        queued--;
+      }
+      return ++inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release(int inFlightAtStart, long start, boolean dropped, boolean sampled) {
+    lock.lock();
+    try {
+      inFlight--;
+      if (sampled) {
+        adjustLimit(inFlightAtStart, start, dropped);
+      }
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void adjustLimit(int inFlightAtStart, long start, boolean dropped) {
+    long now = System.nanoTime();
+    if (dropped || now - start > properties.getLatencyThreshold().toNanos()) {
+      if (lastBackoff == null || start - lastBackoff > 0) {
+        limit = Math.max(limit * properties.getBackoffRatio(), properties.getMinLimit());
+        lastBackoff = now;
+      }
+    } else if (inFlightAtStart * 2 >= (int) limit) {
+      limit = Math.min(limit + 1, properties.getMaxLimit());
+    }
+  }
+
+  /**
+   * 받아 둔 허가. 한 번만 반납된다.
+   */
+  public class Permit {
+
+    private final boolean held;
+    private final int inFlightAtStart;
+    private final boolean sampled;
+    private final long start = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(boolean held, int inFlightAtStart, boolean sampled) {
+      this.held = held;
+      this.inFlightAtStart = inFlightAtStart;
+      this.sampled = sampled;
+    }
+
+    /**
+     * 허가를 쥔 채 실행하고 끝나면 반납한다. 걸린 시간은 허가를 받은 때부터 잰다.
+     */
+    public <T> T execute(RepositoryMetrics.Invocation<T> invocation) throws Throwable {
+      if (!held) {
+        return invocation.proceed();
+      }
+      HOLDING.set(Boolean.TRUE);
+      boolean dropped = false;
+      try {
+        return invocation.proceed();
+      } catch (Throwable e) {
+        dropped = isTimeout(e);
+        throw e;
+      } finally {
+        HOLDING.remove();
+        release(dropped, sampled);
+      }
+    }
+
+    /**
+     * 실행하지 못하고 끝난 요청(실행기 대기열에서 기한이 지났거나 거절된 경우)의 허가를 반납한다. 이미 반납했으면
+     * 아무것도 하지 않는다.
+     *
+     * @param timedOut 기한이 지났으면 과부하 신호로 보고 한도를 줄인다
+     */
+    public void abandon(boolean timedOut) {
+      release(timedOut, timedOut);
+    }
+
+    private void release(boolean dropped, boolean sampled) {
+      if (held && released.compareAndSet(false, true)) {
+        ConcurrencyLimiter.this.release(inFlightAtStart, start, dropped, sampled);
+      }
+    }
+  }
+
+  private long maxWaitNanos() {
+    long waitNanos = properties.getMaxWait().toNanos();
+    QueryDeadline deadline = QueryDeadline.current();
+    if (deadline != null) {
+      waitNanos = Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(
+          Math.min(deadline.remainingMillis(), Long.MAX_VALUE / 1_000_000)));
+    }
+    return waitNanos;
+  }
+
+  private ConcurrencyLimitExceededException reject(String caller, String reason) {
+    log.debug("rejected {} ({}): limit={}, inFlight={}, queued={}", caller, reason, (int) limit,
+        inFlight, queued);
+    Counter.builder("query.concurrency.rejected")
+        .tag("reason", reason)
+        .register(registry)
+        .increment();
+    return new ConcurrencyLimitExceededException(caller, reason);
+  }
+
+  /**
+   * 쿼리 기한 초과와 커넥션 획득 시간 초과(SQLTransientConnectionException)를 과부하 신호로 본다.
+   */
+  private static boolean isTimeout(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof javax.persistence.QueryTimeoutException
+          || cause instanceof org.springframework.dao.QueryTimeoutException
+          || cause instanceof SQLTransientException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
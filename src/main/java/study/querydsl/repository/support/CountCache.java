@@ -0,0 +1,93 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 검색 조건별 count 쿼리 결과 캐시. TTL 과 최대 크기(LRU)로 제한되며 Member/Team 이 변경되면 비워진다.
+ * <p>
+ * 커밋되지 않은 변경이 있을 수 있는 쓰기 트랜잭션 안에서는 캐시를 거치지 않는다.
+ */
+@Component
+public class CountCache {
+
+  private final long ttlNanos;
+  private final Map<Object, CachedCount> entries;
+  private long generation;
+
+  public CountCache(@Value("${querydsl.count-cache.ttl:30s}") Duration ttl,
+      @Value("${querydsl.count-cache.max-size:1000}") int maxSize,
+      EntityChangeNotifier notifier) {
+    this.ttlNanos = ttl.toNanos();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Object, CachedCount> eldest) {
+        return size() > maxSize;
+      }
+    };
+    notifier.subscribe(type -> {
+      if (type == Member.class || type == Team.class) {
+        invalidateAll();
+      }
+    });
+  }
+
+  public long get(Object key, LongSupplier loader) {
+    if (inWriteTransaction()) {
+      return loader.getAsLong();
+    }
+    long now = System.nanoTime();
+    long generationAtLoad;
+    synchronized (entries) {
+      CachedCount cached = entries.get(key);
+      if (cached != null && now - cached.loadedAt < ttlNanos) {
+        return cached.count;
+      }
+      generationAtLoad = generation;
+    }
+    long count = loader.getAsLong();
+    synchronized (entries) {
+      // 조회 도중 무효화되었다면 변경 전 값일 수 있으므로 저장하지 않는다.
+      if (generation == generationAtLoad) {
+        entries.put(key, new CachedCount(count, now));
+      }
+    }
+    return count;
+  }
+
+  public void invalidateAll() {
+    synchronized (entries) {
+      entries.clear();
+      generation++;
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private boolean inWriteTransaction() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  private static class CachedCount {
+
+    private final long count;
+    private final long loadedAt;
+
+    private CachedCount(long count, long loadedAt) {
+      this.count = count;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.Wildcard;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import javax.persistence.EntityManager;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 아주 큰 결과의 전체 개수를 추정한다.
+ * <p>
+ * 테이블 행 수는 DB 통계(table-rows-query, 기본값은 H2 의 INFORMATION_SCHEMA)에서, 조건의 선택도는 id 범위
+ * 몇 구간(sample-windows 개, 구간마다 sample-width 개 id)에서 조건을 만족하는 행의 비율로 구한다. 구간은 한 쿼리로
+ * 묶으므로 추정에 드는 쿼리는 통계, id 범위, 표본 count 두 개로 많아야 네 개다(아래처럼 다시 세면 다섯 개).
+ * <p>
+ * 표본이 곧 비용 상한이다. 테이블이 threshold 보다 작거나 id 범위가 표본 구간 합보다 좁으면 표본을 세는 비용이
+ * 전체를 세는 것과 비슷하므로 바로 정확한 count 를 실행한다. 추정치가 threshold 보다 작으면 표본 밖에만 있는 행을
+ * 놓쳤을 수 있으므로 정확한 count 를 한 번 더 실행하고, threshold 이상일 때만 추정치를 돌려준다.
+ */
+@Slf4j
+@Component
+public class CountEstimator {
+
+  private final EntityManager em;
+  private final JPAQueryFactory queryFactory;
+  private final long threshold;
+  private final int sampleWindows;
+  private final long sampleWidth;
+  private final String tableRowsQuery;
+
+  public CountEstimator(EntityManager em, JPAQueryFactory queryFactory,
+      @Value("${querydsl.count-estimate.threshold:100000}") long threshold,
+      @Value("${querydsl.count-estimate.sample-windows:4}") int sampleWindows,
+      @Value("${querydsl.count-estimate.sample-width:1000}") long sampleWidth,
+      @Value("${querydsl.count-estimate.table-rows-query:"
+          + "select row_count_estimate from information_schema.tables"
+          + " where upper(table_name) = upper(?)}") String tableRowsQuery) {
+    this.em = em;
+    this.queryFactory = queryFactory;
+    this.threshold = threshold;
+    this.sampleWindows = Math.max(sampleWindows, 1);
+    this.sampleWidth = Math.max(sampleWidth, 1);
+    this.tableRowsQuery = tableRowsQuery;
+  }
+
+  /**
+   * @param root         조회 루트 엔티티
+   * @param id           루트 엔티티의 id
+   * @param countInRange 원래 count 쿼리에 주어진 id 범위 조건을 더해 실행한다
+   * @param exactCount   정확한 count
+   */
+  public CountEstimate count(EntityPath<?> root, NumberPath<Long> id,
+      ToLongFunction<Predicate> countInRange, LongSupplier exactCount) {
+    Long statistics = tableStatistics(root);
+    if (statistics != null && statistics < threshold) {
+      return CountEstimate.exact(exactCount.getAsLong());
+    }
+    Tuple bounds = queryFactory.select(id.min(), id.max()).from(root).fetchOne();
+    Long min = bounds == null ? null : bounds.get(id.min());
+    Long max = bounds == null ? null : bounds.get(id.max());
+    if (min == null) {
+      return CountEstimate.exact(0);
+    }
+    long span = max - min + 1;
+    long tableRows = statistics != null ? statistics : span;
+    if (tableRows < threshold || span <= sampleWindows * sampleWidth) {
+      return CountEstimate.exact(exactCount.getAsLong());
+    }
+
+    // span > windows * width 이므로 구간은 겹치지 않는다.
+    BooleanBuilder windows = new BooleanBuilder();
+    for (int i = 0; i < sampleWindows; i++) {
+      long from = sampleWindows == 1 ? min : min + (span - sampleWidth) * i / (sampleWindows - 1);
+      windows.or(id.between(from, from + sampleWidth - 1));
+    }
+    long sampled = queryFactory.select(Wildcard.count).from(root).where(windows).fetchOne();
+    if (sampled == 0) {
+      return CountEstimate.exact(exactCount.getAsLong());
+    }
+    long matched = countInRange.applyAsLong(windows);
+
+    long estimate = Math.round((double) tableRows * matched / sampled);
+    log.debug("estimated {} rows of {} from {}/{} sampled", estimate, tableRows, matched, sampled);
+    if (estimate < threshold) {
+      return CountEstimate.exact(exactCount.getAsLong());
+    }
+    return CountEstimate.approximate(estimate);
+  }
+
+  /**
+   * @return 통계의 행 수. 읽을 수 없으면 null
+   */
+  Long tableStatistics(EntityPath<?> root) {
+    String table = tableName(root.getType());
+    if (table == null) {
+      return null;
+    }
+    // PostgreSQL 처럼 실패한 문장이 트랜잭션 전체를 망가뜨리는 DB 가 있으므로 세이브포인트로 되돌린다.
+    return em.unwrap(Session.class).doReturningWork(connection -> {
+      Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+      try (PreparedStatement ps = connection.prepareStatement(tableRowsQuery)) {
+        ps.setString(1, table);
+        Long rows;
+        try (ResultSet rs = ps.executeQuery()) {
+          rows = rs.next() ? rs.getObject(1, Long.class) : null;
+        }
+        if (savepoint != null) {
+          connection.releaseSavepoint(savepoint);
+        }
+        return rows;
+      } catch (SQLException e) {
+        if (savepoint != null) {
+          connection.rollback(savepoint);
+        }
+        log.debug("table statistics unavailable for {}", table, e);
+        return null;
+      }
+    });
+  }
+
+  private String tableName(Class<?> entityType) {
+    EntityPersister persister = em.getEntityManagerFactory()
+        .unwrap(SessionFactoryImplementor.class)
+        .getMetamodel()
+        .entityPersister(entityType);
+    return persister instanceof AbstractEntityPersister
+        ? ((AbstractEntityPersister) persister).getTableName()
+        : null;
+  }
+
+  @Getter
+  public static class CountEstimate {
+
+    private final long total;
+    private final boolean exact;
+
+    private CountEstimate(long total, boolean exact) {
+      this.total = total;
+      this.exact = exact;
+    }
+
+    public static CountEstimate exact(long total) {
+      return new CountEstimate(total, true);
+    }
+
+    public static CountEstimate approximate(long total) {
+      return new CountEstimate(total, false);
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 페이징 content 쿼리에서 최소한의 count 쿼리를 만든다.
+ * <ul>
+ *   <li>order by, offset/limit 를 제거한다.</li>
+ *   <li>fetch join 은 일반 조인으로 바꾼다.</li>
+ *   <li>어떤 조건에서도 참조하지 않는 to-one 연관관계 left join 은 행 수를 바꾸지 않으므로 제거한다.</li>
+ * </ul>
+ * select distinct 는 한 열이면 그 열을 count(distinct ...) 로 센다. group by / having 이 있거나 여러 열을
+ * distinct 로 고르면 만들지 않는다(null).
+ */
+@Slf4j
+final class CountQueries {
+
+  private CountQueries() {
+  }
+
+  static JPAQuery<Long> derive(EntityManager entityManager, JPAQuery<?> contentQuery) {
+    QueryMetadata metadata = deriveMetadata(contentQuery.getMetadata());
+    if (metadata == null) {
+      return null;
+    }
+    JPAQuery<Long> countQuery = new JPAQuery<>(entityManager, metadata);
+    log.debug("derived count query: {}", countQuery);
+    return countQuery;
+  }
+
+  static QueryMetadata deriveMetadata(QueryMetadata source) {
+    List<JoinExpression> joins = source.getJoins();
+    if (joins.isEmpty() || !source.getGroupBy().isEmpty() || source.getHaving() != null) {
+      return null;
+    }
+
+    Expression<?> counted = joins.get(0).getTarget();
+    if (source.isDistinct()) {
+      counted = distinctColumn(source.getProjection(), counted);
+      if (counted == null) {
+        return null;
+      }
+    }
+
+    Set<Path<?>> whereReferences = new HashSet<>();
+    collectPaths(source.getWhere(), whereReferences);
+    collectPaths(counted, whereReferences);
+
+    // 뒤쪽 조인이 앞쪽 별칭을 참조할 수 있으므로 뒤에서부터 판단한다.
+    List<JoinExpression> kept = new ArrayList<>();
+    Set<Path<?>> references = new HashSet<>(whereReferences);
+    for (int i = joins.size() - 1; i >= 0; i--) {
+      JoinExpression join = joins.get(i);
+      Path<?> alias = removableAlias(join);
+      if (alias != null && !references.contains(alias)) {
+        continue;
+      }
+      kept.add(0, join);
+      collectPaths(join.getTarget(), references);
+      collectPaths(join.getCondition(), references);
+    }
+
+    DefaultQueryMetadata metadata = new DefaultQueryMetadata();
+    for (JoinExpression join : kept) {
+      metadata.addJoin(join.getType(), join.getTarget());
+      if (join.getCondition() != null) {
+        metadata.addJoinCondition(join.getCondition());
+      }
+      for (JoinFlag flag : join.getFlags()) {
+        if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+          metadata.addJoinFlag(flag);
+        }
+      }
+    }
+    if (source.getWhere() != null) {
+      metadata.addWhere(source.getWhere());
+    }
+    for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+      setParam(metadata, param.getKey(), param.getValue());
+    }
+    metadata.setProjection(Expressions.numberOperation(Long.class,
+        source.isDistinct() ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG, counted));
+    return metadata;
+  }
+
+  /**
+   * select distinct 로 고른 한 열. 프로젝션이 없으면 root 다.
+   *
+   * @return 여러 열이면 null
+   */
+  private static Expression<?> distinctColumn(Expression<?> projection, Expression<?> root) {
+    if (projection == null) {
+      return root;
+    }
+    if (projection instanceof FactoryExpression) {
+      List<Expression<?>> args = ((FactoryExpression<?>) projection).getArgs();
+      return args.size() == 1 ? distinctColumn(args.get(0), root) : null;
+    }
+    if (projection instanceof Operation && ((Operation<?>) projection).getOperator() == Ops.ALIAS) {
+      return ((Operation<?>) projection).getArg(0);
+    }
+    return projection;
+  }
+
+  /**
+   * left join 대상이 to-one 연관관계 경로면 그 별칭을, 아니면(inner join, 컬렉션, 연관관계 없는 엔티티 조인) null 을 돌려준다.
+   */
+  private static Path<?> removableAlias(JoinExpression join) {
+    if (join.getType() != JoinType.LEFTJOIN) {
+      return null;
+    }
+    Expression<?> target = join.getTarget();
+    if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+      Operation<?> alias = (Operation<?>) target;
+      Expression<?> association = alias.getArg(0);
+      return isToOne(association) ? (Path<?>) alias.getArg(1) : null;
+    }
+    return isToOne(target) ? (Path<?>) target : null;
+  }
+
+  private static boolean isToOne(Expression<?> association) {
+    return association instanceof EntityPath
+        && ((Path<?>) association).getMetadata().getParent() != null;
+  }
+
+  private static void collectPaths(Expression<?> expr, Set<Path<?>> paths) {
+    if (expr == null) {
+      return;
+    }
+    if (expr instanceof Path) {
+      Path<?> path = (Path<?>) expr;
+      while (path != null) {
+        paths.add(path);
+        path = path.getMetadata().getParent();
+      }
+    } else if (expr instanceof BooleanBuilder) {
+      collectPaths(((BooleanBuilder) expr).getValue(), paths);
+    } else if (expr instanceof Operation) {
+      for (Expression<?> arg : ((Operation<?>) expr).getArgs()) {
+        collectPaths(arg, paths);
+      }
+    } else if (expr instanceof TemplateExpression) {
+      for (Object arg : ((TemplateExpression<?>) expr).getArgs()) {
+        if (arg instanceof Expression) {
+          collectPaths((Expression<?>) arg, paths);
+        }
+      }
+    } else if (expr instanceof FactoryExpression) {
+      for (Expression<?> arg : ((FactoryExpression<?>) expr).getArgs()) {
+        collectPaths(arg, paths);
+      }
+    } else if (expr instanceof SubQueryExpression) {
+      QueryMetadata metadata = ((SubQueryExpression<?>) expr).getMetadata();
+      collectPaths(metadata.getWhere(), paths);
+      collectPaths(metadata.getHaving(), paths);
+      collectPaths(metadata.getProjection(), paths);
+      for (JoinExpression join : metadata.getJoins()) {
+        collectPaths(join.getTarget(), paths);
+        collectPaths(join.getCondition(), paths);
+      }
+      for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+        collectPaths(order.getTarget(), paths);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void setParam(DefaultQueryMetadata metadata, ParamExpression<T> param,
+      Object value) {
+    metadata.setParam(param, (T) value);
+  }
+}
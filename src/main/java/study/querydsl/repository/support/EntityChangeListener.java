@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * JPA 엔티티 리스너. Hibernate 가 SpringBeanContainer 로 생성하므로 스프링 빈을 주입받을 수 있다.
+ */
+public class EntityChangeListener {
+
+  @Autowired
+  private EntityChangeNotifier notifier;
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  public void onChange(Object entity) {
+    notifier.notifyChanged(Hibernate.getClass(entity));
+  }
+}
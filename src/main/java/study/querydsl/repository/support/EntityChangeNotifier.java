@@ -0,0 +1,84 @@
+package study.querydsl.repository.support;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 엔티티 변경(영속성 컨텍스트 이벤트 + 벌크 DML)을 구독자에게 알린다.
+ * <p>
+ * 변경 즉시 한 번, 트랜잭션이 끝난 뒤 한 번 더 알려서 커밋 전에 다른 트랜잭션이 다시 채운 캐시도 비워지게 한다.
+ * <p>
+ * 벌크 DML 처럼 행 단위 이벤트 없이 바뀐 경우는 {@link #notifyBulkChanged(Class)} 로 알리며,
+ * 일반 구독자와 벌크 구독자 모두에게 전달된다. 벌크 구독자도 트랜잭션이 끝난 뒤 한 번 더 받으므로,
+ * 커밋 전에 다시 집계해서 지운 dirty 표시가 다시 켜진다.
+ */
+@Component
+public class EntityChangeNotifier {
+
+  private final List<Consumer<Class<?>>> listeners = new CopyOnWriteArrayList<>();
+  private final List<Consumer<Class<?>>> bulkListeners = new CopyOnWriteArrayList<>();
+
+  public void subscribe(Consumer<Class<?>> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * 엔티티 이벤트 없이 일어난 변경(벌크 DML, JDBC 직접 실행)만 받는다.
+   */
+  public void subscribeBulk(Consumer<Class<?>> listener) {
+    bulkListeners.add(listener);
+  }
+
+  public void notifyBulkChanged(Class<?> entityType) {
+    fireBulk(entityType);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      pending().bulkTypes.add(entityType);
+    }
+    notifyChanged(entityType);
+  }
+
+  public void notifyChanged(Class<?> entityType) {
+    fire(entityType);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      pending().types.add(entityType);
+    }
+  }
+
+  private Pending pending() {
+    Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+    if (pending == null) {
+      Pending created = new Pending();
+      TransactionSynchronizationManager.bindResource(this, created);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeNotifier.this);
+          created.bulkTypes.forEach(EntityChangeNotifier.this::fireBulk);
+          created.types.forEach(EntityChangeNotifier.this::fire);
+        }
+      });
+      pending = created;
+    }
+    return pending;
+  }
+
+  private void fire(Class<?> entityType) {
+    listeners.forEach(listener -> listener.accept(entityType));
+  }
+
+  private void fireBulk(Class<?> entityType) {
+    bulkListeners.forEach(listener -> listener.accept(entityType));
+  }
+
+  private static class Pending {
+
+    private final Set<Class<?>> types = new LinkedHashSet<>();
+    private final Set<Class<?>> bulkTypes = new LinkedHashSet<>();
+  }
+}
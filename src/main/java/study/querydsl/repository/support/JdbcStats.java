@@ -0,0 +1,37 @@
+package study.querydsl.repository.support;
+
+/**
+ * 현재 스레드에서 실행된 JDBC 문장 수와 SQL 실행 시간(실행 + 결과 셋 순회)을 누적한다.
+ * 측정 구간의 시작과 끝 값 차이로 구간별 통계를 구한다.
+ */
+public final class JdbcStats {
+
+  private static final ThreadLocal<JdbcStats> CURRENT = ThreadLocal.withInitial(JdbcStats::new);
+
+  private long statements;
+  private long sqlNanos;
+
+  private JdbcStats() {
+  }
+
+  public static JdbcStats current() {
+    return CURRENT.get();
+  }
+
+  public void statementExecuted(long elapsedNanos) {
+    statements++;
+    sqlNanos += elapsedNanos;
+  }
+
+  public void resultSetRead(long elapsedNanos) {
+    sqlNanos += elapsedNanos;
+  }
+
+  public long getStatements() {
+    return statements;
+  }
+
+  public long getSqlNanos() {
+    return sqlNanos;
+  }
+}
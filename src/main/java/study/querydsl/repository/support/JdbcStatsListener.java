@@ -0,0 +1,26 @@
+package study.querydsl.repository.support;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import java.sql.SQLException;
+import org.springframework.stereotype.Component;
+
+/**
+ * p6spy 로 감싼 DataSource 의 실행 이벤트를 {@link JdbcStats} 에 기록한다.
+ */
+@Component
+public class JdbcStatsListener extends SimpleJdbcEventListener {
+
+  @Override
+  public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos,
+      SQLException e) {
+    JdbcStats.current().statementExecuted(timeElapsedNanos);
+  }
+
+  @Override
+  public void onAfterResultSetNext(ResultSetInformation resultSetInformation,
+      long timeElapsedNanos, boolean hasNext, SQLException e) {
+    JdbcStats.current().resultSetRead(timeElapsedNanos);
+  }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import lombok.Getter;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 지연 로딩(프록시, 컬렉션 초기화)을 호출 위치별로 세어 N+1 패턴을 찾는다.
+ * <p>
+ * {@link #start()} 와 {@link #stop()} 사이에 현재 스레드에서 일어난 지연 로딩을 기록하며, 같은 엔티티를 같은 위치에서
+ * threshold 번 이상 지연 로딩하면 의심 패턴으로 보고한다.
+ */
+@Component
+public class LazyLoadDetector implements LoadEventListener, InitializeCollectionEventListener {
+
+  private static final ThreadLocal<Map<String, Integer>> RECORDING = new ThreadLocal<>();
+
+  private final transient EntityManagerFactory entityManagerFactory;
+  private final transient MeterRegistry meterRegistry;
+  private final int threshold;
+
+  public LazyLoadDetector(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry,
+      @Value("${querydsl.n-plus-one.threshold:5}") int threshold) {
+    this.entityManagerFactory = entityManagerFactory;
+    this.meterRegistry = meterRegistry;
+    this.threshold = threshold;
+  }
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.LOAD, this);
+    registry.appendListeners(EventType.INIT_COLLECTION, this);
+  }
+
+  public void start() {
+    RECORDING.set(new LinkedHashMap<>());
+  }
+
+  public Report stop() {
+    Map<String, Integer> recorded = RECORDING.get();
+    RECORDING.remove();
+    return new Report(recorded != null ? recorded : Map.of(), threshold);
+  }
+
+  @Override
+  public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+    if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+      record(event.getEntityClassName());
+    }
+  }
+
+  @Override
+  public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+    record(event.getCollection().getRole());
+  }
+
+  private void record(String target) {
+    meterRegistry.counter("hibernate.lazy.loads", "target", target).increment();
+    Map<String, Integer> recorded = RECORDING.get();
+    if (recorded != null) {
+      recorded.merge(target + " at " + callSite(), 1, Integer::sum);
+    }
+  }
+
+  /**
+   * 프레임워크와 프록시 클래스를 건너뛴 첫 번째 애플리케이션 코드 위치.
+   */
+  private static String callSite() {
+    return StackWalker.getInstance()
+        .walk(frames -> frames
+            .filter(frame -> frame.getClassName().startsWith("study.querydsl."))
+            .filter(frame -> !frame.getClassName().startsWith("study.querydsl.repository.support."))
+            .filter(frame -> !frame.getClassName().contains("$HibernateProxy$"))
+            .findFirst()
+            .map(StackWalker.StackFrame::toString)
+            .orElse("unknown"));
+  }
+
+  @Getter
+  public static class Report {
+
+    private final int lazyLoads;
+    private final List<String> suspects = new ArrayList<>();
+
+    private Report(Map<String, Integer> recorded, int threshold) {
+      this.lazyLoads = recorded.values().stream().mapToInt(Integer::intValue).sum();
+      recorded.forEach((site, count) -> {
+        if (count >= threshold) {
+          suspects.add(count + " lazy loads of " + site);
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package study.querydsl.repository.support;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 페이징 조회의 content 쿼리와 count 쿼리를 함께 실행한다.
+ * <p>
+ * {@code querydsl.parallel-count.enabled} 가 켜져 있으면 count 쿼리를 별도 스레드에서 새 읽기 전용 트랜잭션
+ * (= 별도 커넥션과 영속성 컨텍스트)으로 실행한다. 호출자가 쓰기 트랜잭션 안에 있으면 커밋되지 않은 변경이 보이지 않으므로
+ * 기존처럼 순서대로 실행한다. count 생략 규칙은 {@link PageableExecutionUtils} 를 그대로 따른다.
+ * <p>
+ * count 는 시작하기 전에 상태를 확인한다. content 를 받은 뒤 count 가 필요 없으면 아직 시작하지 않은 count 는 실행되지
+ * 않고, 필요한데 아직 시작하지 않았으면 기다리지 않고 호출자 스레드에서 직접 실행한다. 그래서 커넥션을 가진 호출자가
+ * 커넥션을 기다리는 count 를 기다리는 일이 없다. 병렬 count 한 건은 커넥션을 두 개 쓰므로 스레드 수는 커넥션 풀의
+ * 절반을 넘지 않게 줄인다.
+ */
+@Slf4j
+@Component
+public class PageCountExecutor implements DisposableBean {
+
+  private static final int PENDING = 0;
+  private static final int STARTED = 1;
+  private static final int SKIPPED = 2;
+
+  private final boolean enabled;
+  private final ThreadPoolTaskExecutor executor;
+  private final TransactionTemplate countTransaction;
+
+  public PageCountExecutor(PlatformTransactionManager transactionManager,
+      @Value("${querydsl.parallel-count.enabled:false}") boolean enabled,
+      @Value("${querydsl.parallel-count.pool-size:4}") int poolSize,
+      @Value("${querydsl.parallel-count.queue-capacity:100}") int queueCapacity,
+      @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+    this.enabled = enabled;
+    int threads = Math.max(Math.min(poolSize, connectionPoolSize / 2), 1);
+    if (enabled && threads < poolSize) {
+      log.info("parallel count pool-size {} capped to {} for {} pooled connections", poolSize,
+          threads, connectionPoolSize);
+    }
+    this.executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(threads);
+    executor.setMaxPoolSize(threads);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("page-count-");
+    executor.initialize();
+    this.countTransaction = new TransactionTemplate(transactionManager);
+    countTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    countTransaction.setReadOnly(true);
+  }
+
+  public <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> content, LongSupplier count) {
+    if (!enabled || inWriteTransaction()) {
+      return PageableExecutionUtils.getPage(content.get(), pageable, count);
+    }
+
+    // 호출자의 쿼리 기한을 count 스레드에도 적용한다.
+    QueryDeadline deadline = QueryDeadline.current();
+    AtomicInteger state = new AtomicInteger(PENDING);
+    CompletableFuture<Long> countFuture;
+    try {
+      countFuture = CompletableFuture.supplyAsync(() -> {
+        if (!state.compareAndSet(PENDING, STARTED)) {
+          return null;
+        }
+        if (deadline == null) {
+          return countTransaction.execute(status -> count.getAsLong());
+        }
+        try (QueryDeadline.Scope scope = deadline.bind()) {
+          return countTransaction.execute(status -> count.getAsLong());
+        }
+      }, executor);
+    } catch (RejectedExecutionException e) {
+      log.debug("count executor saturated, counting on caller thread");
+      return PageableExecutionUtils.getPage(content.get(), pageable, count);
+    }
+
+    try {
+      return PageableExecutionUtils.getPage(content.get(), pageable, () -> {
+        if (state.compareAndSet(PENDING, SKIPPED)) {
+          return count.getAsLong();
+        }
+        return join(countFuture);
+      });
+    } finally {
+      // content 가 실패했거나 count 가 필요 없으면 아직 시작하지 않은 count 를 건너뛴다.
+      state.compareAndSet(PENDING, SKIPPED);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+
+  private boolean inWriteTransaction() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  private static long join(CompletableFuture<Long> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.util.Assert;
+
+/**
+ * 한 요청에서 실행하는 쿼리들의 공통 기한.
+ * <p>
+ * {@link #bind()} 로 현재 스레드에 묶어 두면 그 스레드에서 만드는 쿼리({@link RepositoryJPAQueryFactory},
+ * {@link Querydsl4RepositorySupport}, 직접 만든 JPQL 은 {@link #apply(EntityManager, Query)})에
+ * 남은 시간이 {@value #TIMEOUT_HINT} 힌트로 전달된다. Hibernate 는 이 값을 초 단위로 반올림하므로
+ * 남은 시간을 초 단위로 올려서 넘긴다. 더 짧은 기한은 {@link #cancel()} 로 맞춘다.
+ * <p>
+ * {@link #cancel()} 은 다른 스레드에서 불러도 되며, 이 기한으로 쿼리를 만든 세션에서 실행 중인 JDBC 문장을 취소한다.
+ */
+@Slf4j
+public final class QueryDeadline {
+
+  public static final String TIMEOUT_HINT = "javax.persistence.query.timeout";
+
+  private static final ThreadLocal<QueryDeadline> CURRENT = new ThreadLocal<>();
+
+  private final String name;
+  private final long deadlineNanos;
+  private final boolean bounded;
+  private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+  private volatile boolean cancelled;
+
+  private QueryDeadline(String name, long deadlineNanos, boolean bounded) {
+    this.name = name;
+    this.deadlineNanos = deadlineNanos;
+    this.bounded = bounded;
+  }
+
+  /**
+   * @param timeout 0 이하면 기한 없이 취소만 할 수 있다
+   */
+  public static QueryDeadline after(String name, Duration timeout) {
+    Assert.notNull(timeout, "Timeout must not be null!");
+    if (timeout.isZero() || timeout.isNegative()) {
+      return new QueryDeadline(name, 0, false);
+    }
+    return new QueryDeadline(name, System.nanoTime() + timeout.toNanos(), true);
+  }
+
+  /**
+   * @return 현재 스레드에 묶인 기한. 없으면 null
+   */
+  public static QueryDeadline current() {
+    return CURRENT.get();
+  }
+
+  public static <T> JPAQuery<T> apply(EntityManager em, JPAQuery<T> query) {
+    QueryDeadline deadline = CURRENT.get();
+    if (deadline != null) {
+      deadline.register(em);
+      if (deadline.bounded) {
+        query.setHint(TIMEOUT_HINT, deadline.timeoutHint());
+      }
+    }
+    return query;
+  }
+
+  public static Query apply(EntityManager em, Query query) {
+    QueryDeadline deadline = CURRENT.get();
+    if (deadline != null) {
+      deadline.register(em);
+      if (deadline.bounded) {
+        query.setHint(TIMEOUT_HINT, deadline.timeoutHint());
+      }
+    }
+    return query;
+  }
+
+  /**
+   * JDBC 문장에 직접 줄 초 단위 제한 시간.
+   *
+   * @return 현재 기한이 없으면 0(제한 없음)
+   */
+  public static int remainingSeconds() {
+    QueryDeadline deadline = CURRENT.get();
+    if (deadline == null || !deadline.bounded) {
+      return 0;
+    }
+    deadline.check();
+    return (int) TimeUnit.MILLISECONDS.toSeconds(deadline.timeoutHint());
+  }
+
+  public Scope bind() {
+    QueryDeadline previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  public void cancel() {
+    cancelled = true;
+    for (Session session : sessions) {
+      try {
+        session.cancelQuery();
+      } catch (RuntimeException e) {
+        log.debug("failed to cancel query of {}", name, e);
+      }
+    }
+    sessions.clear();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  public boolean isExpired() {
+    return bounded && System.nanoTime() - deadlineNanos >= 0;
+  }
+
+  /**
+   * @return 기한이 없으면 Long.MAX_VALUE
+   */
+  public long remainingMillis() {
+    if (!bounded) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()), 0);
+  }
+
+  private void register(EntityManager em) {
+    check();
+    sessions.add(em.unwrap(Session.class));
+  }
+
+  private void check() {
+    if (cancelled) {
+      throw new QueryTimeoutException("Query deadline " + name + " was cancelled");
+    }
+    if (isExpired()) {
+      throw new QueryTimeoutException("Query deadline " + name + " has passed");
+    }
+  }
+
+  /**
+   * Hibernate 는 이 힌트에 Integer 나 문자열만 받는다.
+   */
+  private int timeoutHint() {
+    long seconds = (remainingMillis() + 999) / 1000;
+    return (int) Math.min(TimeUnit.SECONDS.toMillis(Math.max(seconds, 1)), Integer.MAX_VALUE);
+  }
+
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,156 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.datasource.PrimaryReads;
+
+/**
+ * 조회 결과 캐시. 항목마다 결과가 의존하는 엔티티 타입(테이블)을 태그로 달아 두고, 그 타입이 변경되면
+ * (엔티티 리스너, Querydsl 벌크 DML 모두 {@link EntityChangeNotifier} 로 알려진다) 해당 항목만 비운다.
+ * <p>
+ * 항목 수와 가중치(보통 행 수) 합계, TTL 로 제한되며 넘치면 가장 오래 쓰이지 않은 항목부터 버린다.
+ * 커밋되지 않은 변경이 있을 수 있는 쓰기 트랜잭션 안에서는 캐시를 거치지 않는다. 태그가 무효화된 직후의 조회는
+ * 복제본에 변경이 아직 없을 수 있으므로 primary 에서 읽는다({@link PrimaryReads}).
+ */
+@Component
+public class QueryResultCache {
+
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final long maxWeight;
+  private final LinkedHashMap<Object, CachedResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<Class<?>, Long> generations = new HashMap<>();
+  private final Map<Class<?>, Long> invalidatedAt = new HashMap<>();
+  private final PrimaryReads primaryReads;
+  private long totalWeight;
+
+  public QueryResultCache(@Value("${querydsl.result-cache.ttl:60s}") Duration ttl,
+      @Value("${querydsl.result-cache.max-entries:1000}") int maxEntries,
+      @Value("${querydsl.result-cache.max-weight:100000}") long maxWeight,
+      EntityChangeNotifier notifier, PrimaryReads primaryReads) {
+    this.ttlNanos = ttl.toNanos();
+    this.primaryReads = primaryReads;
+    this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+    notifier.subscribe(this::invalidate);
+  }
+
+  /**
+   * @param tags   결과가 의존하는 엔티티 타입
+   * @param weigher 결과의 가중치. max-weight 보다 무거운 결과는 저장하지 않는다.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Set<Class<?>> tags, ToIntFunction<? super T> weigher,
+      Supplier<T> loader) {
+    if (inWriteTransaction()) {
+      return loader.get();
+    }
+    long now = System.nanoTime();
+    long generationAtLoad;
+    Long changedAt;
+    synchronized (this) {
+      CachedResult cached = entries.get(key);
+      if (cached != null && now - cached.loadedAt < ttlNanos) {
+        return (T) cached.value;
+      }
+      generationAtLoad = generation(tags);
+      changedAt = lastInvalidated(tags);
+    }
+    T value = primaryReads.readSince(changedAt, loader);
+    int weight = weigher.applyAsInt(value);
+    synchronized (this) {
+      // 조회 도중 태그 중 하나라도 무효화되었다면 변경 전 값일 수 있으므로 저장하지 않는다.
+      if (weight <= maxWeight && generation(tags) == generationAtLoad) {
+        remove(key);
+        entries.put(key, new CachedResult(value, tags, weight, now));
+        totalWeight += weight;
+        evict();
+      }
+    }
+    return value;
+  }
+
+  public synchronized void invalidate(Class<?> entityType) {
+    generations.merge(entityType, 1L, Long::sum);
+    invalidatedAt.put(entityType, System.nanoTime());
+    Iterator<CachedResult> it = entries.values().iterator();
+    while (it.hasNext()) {
+      CachedResult cached = it.next();
+      if (cached.tags.contains(entityType)) {
+        totalWeight -= cached.weight;
+        it.remove();
+      }
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long weight() {
+    return totalWeight;
+  }
+
+  private long generation(Set<Class<?>> tags) {
+    long sum = 0;
+    for (Class<?> tag : tags) {
+      sum += generations.getOrDefault(tag, 0L);
+    }
+    return sum;
+  }
+
+  private Long lastInvalidated(Set<Class<?>> tags) {
+    Long last = null;
+    for (Class<?> tag : tags) {
+      Long at = invalidatedAt.get(tag);
+      if (at != null && (last == null || at - last > 0)) {
+        last = at;
+      }
+    }
+    return last;
+  }
+
+  private void remove(Object key) {
+    CachedResult removed = entries.remove(key);
+    if (removed != null) {
+      totalWeight -= removed.weight;
+    }
+  }
+
+  private void evict() {
+    Iterator<CachedResult> it = entries.values().iterator();
+    while ((entries.size() > maxEntries || totalWeight > maxWeight) && it.hasNext()) {
+      totalWeight -= it.next().weight;
+      it.remove();
+    }
+  }
+
+  private boolean inWriteTransaction() {
+    return TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+
+  private static class CachedResult {
+
+    private final Object value;
+    private final Set<Class<?>> tags;
+    private final int weight;
+    private final long loadedAt;
+
+    private CachedResult(Object value, Set<Class<?>> tags, int weight, long loadedAt) {
+      this.value = value;
+      this.tags = tags;
+      this.weight = weight;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package study.querydsl.repository.support;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
@@ -15,9 +17,12 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.repository.support.CountEstimator.CountEstimate;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
@@ -28,10 +33,16 @@ org.springframework.data.jpa.repository.support.QuerydslRepositorySupport
  */
 @Repository
 public abstract class Querydsl4RepositorySupport {
+  private static final String SUPPORT = "Querydsl4RepositorySupport";
   private final Class domainClass;
   private Querydsl querydsl;
   private EntityManager entityManager;
   private JPAQueryFactory queryFactory;
+  private PageCountExecutor pageCountExecutor;
+  private RepositoryMetrics metrics;
+  private CountEstimator countEstimator;
+  private PathBuilder<?> root;
+  private NumberPath<Long> id;
   public Querydsl4RepositorySupport(Class<?> domainClass) {
     Assert.notNull(domainClass, "Domain class must not be null!");
     this.domainClass = domainClass;
@@ -44,15 +55,38 @@ public abstract class Querydsl4RepositorySupport {
     SimpleEntityPathResolver resolver = SimpleEntityPathResolver.INSTANCE;
     EntityPath path = resolver.createPath(entityInformation.getJavaType());
     this.entityManager = entityManager;
-    this.querydsl = new Querydsl(entityManager, new
-        PathBuilder<>(path.getType(), path.getMetadata()));
-    this.queryFactory = new JPAQueryFactory(entityManager);
+    this.root = new PathBuilder<>(path.getType(), path.getMetadata());
+    this.querydsl = new Querydsl(entityManager, root);
+    if (entityInformation.hasCompositeId() || entityInformation.getIdType() != Long.class) {
+      this.id = null;
+    } else {
+      this.id = root.getNumber(entityInformation.getIdAttribute().getName(), Long.class);
+    }
+  }
+  @Autowired
+  public void setQueryFactory(JPAQueryFactory queryFactory) {
+    this.queryFactory = queryFactory;
+  }
+  @Autowired
+  public void setPageCountExecutor(PageCountExecutor pageCountExecutor) {
+    this.pageCountExecutor = pageCountExecutor;
+  }
+  @Autowired
+  public void setRepositoryMetrics(RepositoryMetrics metrics) {
+    this.metrics = metrics;
+  }
+  @Autowired
+  public void setCountEstimator(CountEstimator countEstimator) {
+    this.countEstimator = countEstimator;
   }
   @PostConstruct
   public void validate() {
     Assert.notNull(entityManager, "EntityManager must not be null!");
     Assert.notNull(querydsl, "Querydsl must not be null!");
     Assert.notNull(queryFactory, "QueryFactory must not be null!");
+    Assert.notNull(pageCountExecutor, "PageCountExecutor must not be null!");
+    Assert.notNull(metrics, "RepositoryMetrics must not be null!");
+    Assert.notNull(countEstimator, "CountEstimator must not be null!");
   }
   protected JPAQueryFactory getQueryFactory() {
     return queryFactory;
@@ -72,19 +106,62 @@ public abstract class Querydsl4RepositorySupport {
   protected <T> Page<T> applyPagination(Pageable pageable,
       Function<JPAQueryFactory, JPAQuery> contentQuery) {
     JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-    List<T> content = getQuerydsl().applyPagination(pageable,
-        jpaQuery).fetch();
+    JPAQuery<Long> countQuery = deadline(CountQueries.derive(entityManager, jpaQuery));
+    List<T> content = metrics.<List<T>>record(SUPPORT, "applyPagination.content",
+        () -> getQuerydsl().applyPagination(pageable, jpaQuery).fetch());
     return PageableExecutionUtils.getPage(content, pageable,
-        jpaQuery::fetchCount);
+        () -> metrics.<Long>record(SUPPORT, "applyPagination.count",
+            () -> countQuery != null ? countQuery.fetchOne() : jpaQuery.fetchCount()));
   }
   protected <T> Page<T> applyPagination(Pageable pageable,
       Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
       JPAQuery> countQuery) {
     JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-    List<T> content = getQuerydsl().applyPagination(pageable,
-        jpaContentQuery).fetch();
-    JPAQuery countResult = countQuery.apply(getQueryFactory());
-    return PageableExecutionUtils.getPage(content, pageable,
-        countResult::fetchCount);
+    return pageCountExecutor.getPage(pageable,
+        () -> metrics.<List<T>>record(SUPPORT, "applyPagination.content",
+            () -> getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch()),
+        () -> metrics.<Long>record(SUPPORT, "applyPagination.count",
+            () -> countQuery.apply(getQueryFactory()).fetchCount()));
+  }
+  /**
+   * applyPagination 과 같지만 결과가 많으면 전체 개수를 {@link CountEstimator} 로 추정한다.
+   * id 가 Long 이 아닌 엔티티는 항상 정확한 count 를 실행한다.
+   */
+  protected <T> EstimatedPage<T> applyEstimatedPagination(Pageable pageable,
+      Function<JPAQueryFactory, JPAQuery> contentQuery) {
+    JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+    JPAQuery<Long> countQuery = deadline(CountQueries.derive(entityManager, jpaQuery));
+    // applyPagination 이 jpaQuery 에 offset/limit/정렬을 더하므로 그 전에 복제해 둔다.
+    JPAQuery<?> countBase = countQuery != null ? countQuery : (JPAQuery<?>) jpaQuery.clone();
+    boolean derived = countQuery != null;
+    AtomicBoolean exact = new AtomicBoolean(true);
+    List<T> content = metrics.<List<T>>record(SUPPORT, "applyPagination.content",
+        () -> getQuerydsl().applyPagination(pageable, jpaQuery).fetch());
+    Page<T> page = PageableExecutionUtils.getPage(content, pageable,
+        () -> metrics.<Long>record(SUPPORT, "applyPagination.count", () -> {
+          if (id == null) {
+            return count(countBase, derived, null);
+          }
+          CountEstimate estimate = countEstimator.count(root, id,
+              range -> count(countBase, derived, range),
+              () -> count(countBase, derived, null));
+          exact.set(estimate.isExact());
+          return estimate.getTotal();
+        }));
+    return EstimatedPage.of(page, exact.get());
+  }
+  /**
+   * CountQueries 가 만든 쿼리는 queryFactory 를 거치지 않으므로 기한을 따로 넣는다.
+   */
+  private <T> JPAQuery<T> deadline(JPAQuery<T> query) {
+    return query != null ? QueryDeadline.apply(entityManager, query) : null;
+  }
+  /**
+   * @param derived countBase 가 이미 count 를 select 하는 쿼리인지
+   * @param range   더할 조건. null 이면 그대로
+   */
+  private static long count(JPAQuery<?> countBase, boolean derived, Predicate range) {
+    JPAQuery<?> query = countBase.clone().where(range);
+    return derived ? (Long) query.fetchOne() : query.fetchCount();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAInsertClause;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import javax.persistence.EntityManager;
+
+/**
+ * 프로젝트 공용 JPAQueryFactory.
+ * <p>
+ * 벌크 DML 은 영속성 컨텍스트와 엔티티 리스너를 거치지 않으므로, 실행 후 변경된 엔티티 타입을
+ * {@link EntityChangeNotifier} 에 직접 알린다.
+ * <p>
+ * 조회 쿼리에는 현재 스레드의 {@link QueryDeadline} 이 있으면 그 제한 시간을 힌트로 넣는다.
+ */
+public class RepositoryJPAQueryFactory extends JPAQueryFactory {
+
+  private final EntityManager entityManager;
+  private final EntityChangeNotifier notifier;
+
+  public RepositoryJPAQueryFactory(EntityManager entityManager, EntityChangeNotifier notifier) {
+    super(entityManager);
+    this.entityManager = entityManager;
+    this.notifier = notifier;
+  }
+
+  @Override
+  public JPAQuery<?> query() {
+    return QueryDeadline.apply(entityManager, super.query());
+  }
+
+  @Override
+  public JPADeleteClause delete(EntityPath<?> path) {
+    return new JPADeleteClause(entityManager, path) {
+      @Override
+      public long execute() {
+        long count = super.execute();
+        notifier.notifyBulkChanged(path.getType());
+        return count;
+      }
+    };
+  }
+
+  @Override
+  public JPAInsertClause insert(EntityPath<?> path) {
+    return new JPAInsertClause(entityManager, path) {
+      @Override
+      public long execute() {
+        long count = super.execute();
+        notifier.notifyBulkChanged(path.getType());
+        return count;
+      }
+    };
+  }
+
+  @Override
+  public JPAUpdateClause update(EntityPath<?> path) {
+    return new JPAUpdateClause(entityManager, path) {
+      @Override
+      public long execute() {
+        long count = super.execute();
+        notifier.notifyBulkChanged(path.getType());
+        return count;
+      }
+    };
+  }
+}
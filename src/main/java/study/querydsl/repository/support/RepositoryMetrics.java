@@ -0,0 +1,117 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.CursorSlice;
+
+/**
+ * 리포지토리 메서드 호출별 지표.
+ * <ul>
+ *   <li>repository.invocation - 전체 호출 시간</li>
+ *   <li>repository.sql - SQL 실행과 결과 셋 순회 시간</li>
+ *   <li>repository.hydration - 나머지 시간(쿼리 생성, 엔티티/DTO 변환)</li>
+ *   <li>repository.statements - 호출당 실행한 JDBC 문장 수</li>
+ *   <li>repository.rows - 호출당 반환한 행 수</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetrics {
+
+  private final MeterRegistry registry;
+
+  public <T> T record(String repository, String method, Supplier<T> invocation) {
+    try {
+      return recordInvocation(repository, method, invocation::get);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new UndeclaredThrowableException(e);
+    }
+  }
+
+  public <T> T recordInvocation(String repository, String method, Invocation<T> invocation)
+      throws Throwable {
+    JdbcStats stats = JdbcStats.current();
+    long statementsBefore = stats.getStatements();
+    long sqlNanosBefore = stats.getSqlNanos();
+    long start = System.nanoTime();
+    String outcome = "success";
+    T result = null;
+    try {
+      result = invocation.proceed();
+      return result;
+    } catch (Throwable e) {
+      outcome = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      long sqlNanos = Math.min(elapsed, stats.getSqlNanos() - sqlNanosBefore);
+      Tags tags = Tags.of("repository", repository, "method", method);
+
+      Timer.builder("repository.invocation")
+          .tags(tags)
+          .tag("outcome", outcome)
+          .publishPercentileHistogram()
+          .register(registry)
+          .record(elapsed, TimeUnit.NANOSECONDS);
+      Timer.builder("repository.sql")
+          .tags(tags)
+          .publishPercentileHistogram()
+          .register(registry)
+          .record(sqlNanos, TimeUnit.NANOSECONDS);
+      Timer.builder("repository.hydration")
+          .tags(tags)
+          .publishPercentileHistogram()
+          .register(registry)
+          .record(elapsed - sqlNanos, TimeUnit.NANOSECONDS);
+      DistributionSummary.builder("repository.statements")
+          .tags(tags)
+          .register(registry)
+          .record(stats.getStatements() - statementsBefore);
+      long rows = rows(result);
+      if (rows >= 0) {
+        DistributionSummary.builder("repository.rows")
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(rows);
+      }
+    }
+  }
+
+  /**
+   * @return 행 수를 알 수 없는 반환 타입이면 -1
+   */
+  private static long rows(Object result) {
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    }
+    if (result instanceof Slice) {
+      return ((Slice<?>) result).getNumberOfElements();
+    }
+    if (result instanceof CursorSlice) {
+      return ((CursorSlice<?>) result).getContent().size();
+    }
+    if (result instanceof Optional) {
+      return ((Optional<?>) result).isPresent() ? 1 : 0;
+    }
+    return -1;
+  }
+
+  @FunctionalInterface
+  public interface Invocation<T> {
+
+    T proceed() throws Throwable;
+  }
+}
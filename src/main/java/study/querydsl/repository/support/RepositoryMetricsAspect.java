@@ -0,0 +1,25 @@
+package study.querydsl.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+  private final RepositoryMetrics metrics;
+
+  @Around("within(study.querydsl.repository.MemberJpaRepository)"
+      + " || within(study.querydsl.repository.MemberRepositoryImpl)"
+      + " || within(study.querydsl.repository.MemberTestRepository)")
+  public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+    return metrics.recordInvocation(
+        joinPoint.getSignature().getDeclaringType().getSimpleName(),
+        joinPoint.getSignature().getName(),
+        joinPoint::proceed);
+  }
+}
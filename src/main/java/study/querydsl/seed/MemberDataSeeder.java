@@ -0,0 +1,168 @@
+package study.querydsl.seed;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Random;
+import javax.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EntityChangeNotifier;
+
+/**
+ * 대량 샘플 데이터 생성기.
+ * <p>
+ * 영속성 컨텍스트를 거치지 않고 JDBC 배치 insert 로 넣으며, 식별자는 엔티티와 같은 시퀀스에서 블록 단위로 할당한다.
+ * 배치마다 커밋하므로 트랜잭션과 메모리 사용량이 회원 수와 관계없이 일정하다.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(SeedProperties.class)
+public class MemberDataSeeder {
+
+  private static final String INSERT_TEAM = "insert into team (id, name) values (?, ?)";
+  private static final String INSERT_MEMBER =
+      "insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)";
+  private static final long PROGRESS_INTERVAL = 100_000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final EntityChangeNotifier notifier;
+  private final SeedProperties defaults;
+  private final Dialect dialect;
+
+  public MemberDataSeeder(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+      EntityManagerFactory entityManagerFactory, EntityChangeNotifier notifier,
+      SeedProperties defaults) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.notifier = notifier;
+    this.defaults = defaults;
+    this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+        .getJdbcServices().getDialect();
+  }
+
+  public long seed() {
+    return seed(defaults);
+  }
+
+  /**
+   * @return 생성한 회원 수
+   */
+  public long seed(SeedProperties properties) {
+    long started = System.nanoTime();
+    Random random = new Random(properties.getRandomSeed());
+    long[] teamIds = insertTeams(properties.getTeams());
+
+    PooledIdAllocator memberIds = allocator(Member.SEQUENCE_NAME, Member.ALLOCATION_SIZE);
+    long total = properties.getMembers();
+    long inserted = 0;
+    long nextReport = PROGRESS_INTERVAL;
+    while (inserted < total) {
+      int batch = (int) Math.min(properties.getBatchSize(), total - inserted);
+      long from = inserted;
+      transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_MEMBER,
+          new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+              long index = from + i;
+              ps.setLong(1, memberIds.next());
+              ps.setString(2, "member" + index);
+              ps.setInt(3, age(properties, random, index));
+              if (teamIds.length == 0) {
+                ps.setNull(4, Types.BIGINT);
+              } else {
+                ps.setLong(4, teamIds[team(properties, random, index, teamIds.length)]);
+              }
+            }
+
+            @Override
+            public int getBatchSize() {
+              return batch;
+            }
+          }));
+      inserted += batch;
+      if (inserted >= nextReport) {
+        log.info("seeded {}/{} members ({} rows/s)", inserted, total, rate(inserted, started));
+        nextReport += PROGRESS_INTERVAL;
+      }
+    }
+
+    notifier.notifyBulkChanged(Team.class);
+    notifier.notifyBulkChanged(Member.class);
+    log.info("seeded {} teams and {} members in {} ms ({} rows/s)", teamIds.length, inserted,
+        (System.nanoTime() - started) / 1_000_000, rate(inserted, started));
+    return inserted;
+  }
+
+  private long[] insertTeams(int teams) {
+    PooledIdAllocator ids = allocator(Team.SEQUENCE_NAME, Team.ALLOCATION_SIZE);
+    long[] teamIds = new long[teams];
+    for (int i = 0; i < teams; i++) {
+      teamIds[i] = ids.next();
+    }
+    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_TEAM,
+        new BatchPreparedStatementSetter() {
+          @Override
+          public void setValues(PreparedStatement ps, int i) throws SQLException {
+            ps.setLong(1, teamIds[i]);
+            ps.setString(2, teamName(i));
+          }
+
+          @Override
+          public int getBatchSize() {
+            return teams;
+          }
+        }));
+    return teamIds;
+  }
+
+  private PooledIdAllocator allocator(String sequenceName, int allocationSize) {
+    return new PooledIdAllocator(jdbcTemplate, dialect.getSequenceNextValString(sequenceName),
+        allocationSize);
+  }
+
+  static String teamName(int index) {
+    return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+  }
+
+  private static int age(SeedProperties properties, Random random, long index) {
+    int min = properties.getAgeMin();
+    int range = properties.getAgeMax() - min + 1;
+    switch (properties.getAgeDistribution()) {
+      case UNIFORM:
+        return min + random.nextInt(range);
+      case NORMAL:
+        long age = Math.round(min + range / 2.0 + random.nextGaussian() * range / 6.0);
+        return (int) Math.max(min, Math.min(properties.getAgeMax(), age));
+      default:
+        return min + (int) (index % range);
+    }
+  }
+
+  private static int team(SeedProperties properties, Random random, long index, int teams) {
+    switch (properties.getTeamDistribution()) {
+      case UNIFORM:
+        return random.nextInt(teams);
+      case SKEWED:
+        // 앞쪽 팀에 회원이 몰리도록 치우친 분포
+        return (int) (teams * Math.pow(random.nextDouble(), 3));
+      default:
+        return (int) (index % teams);
+    }
+  }
+
+  private static long rate(long rows, long startedNanos) {
+    long elapsed = Math.max(1, System.nanoTime() - startedNanos);
+    return rows * 1_000_000_000L / elapsed;
+  }
+}
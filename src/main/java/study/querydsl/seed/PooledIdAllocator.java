@@ -0,0 +1,33 @@
+package study.querydsl.seed;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * 시퀀스 한 번 호출로 allocationSize 개의 식별자를 확보한다(pooled-lo).
+ * <p>
+ * 엔티티의 {@code @SequenceGenerator} 와 같은 시퀀스, 같은 증가폭을 써야 Hibernate 가 발급하는 식별자와 겹치지 않는다.
+ */
+public class PooledIdAllocator {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String nextValueSql;
+  private final int allocationSize;
+
+  private long next;
+  private long limit;
+
+  public PooledIdAllocator(JdbcTemplate jdbcTemplate, String nextValueSql, int allocationSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.nextValueSql = nextValueSql;
+    this.allocationSize = allocationSize;
+  }
+
+  public long next() {
+    if (next >= limit) {
+      Long low = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+      next = low;
+      limit = low + allocationSize;
+    }
+    return next++;
+  }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.seed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 샘플 데이터 생성 설정. 기본값은 예전 InitMember 와 같다(팀 2개, 회원 100명, 나이 0~99 순서대로).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "seed")
+public class SeedProperties {
+
+  private int teams = 2;
+  private long members = 100;
+  private int batchSize = 1_000;
+  private int ageMin = 0;
+  private int ageMax = 99;
+  private AgeDistribution ageDistribution = AgeDistribution.SEQUENTIAL;
+  private TeamDistribution teamDistribution = TeamDistribution.ROUND_ROBIN;
+  private long randomSeed = 42;
+
+  public enum AgeDistribution {
+    SEQUENTIAL, UNIFORM, NORMAL
+  }
+
+  public enum TeamDistribution {
+    ROUND_ROBIN, UNIFORM, SKEWED
+  }
+}
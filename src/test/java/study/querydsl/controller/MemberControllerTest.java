@@ -0,0 +1,131 @@
+package study.querydsl.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+/**
+ * 비동기 조회는 다른 스레드에서 실행되므로 테스트 트랜잭션 없이 커밋하고, 이 테스트가 만든 회원만 조회하고 정리한다.
+ */
+@SpringBootTest(properties = "spring.data.web.pageable.max-page-size=2")
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+  @Autowired MockMvc mvc;
+  @Autowired ObjectMapper objectMapper;
+  @Autowired EntityManager em;
+  @Autowired JPAQueryFactory queryFactory;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+  String prefix = "web-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+  @BeforeEach
+  public void setUp() {
+    tx = new TransactionTemplate(transactionManager);
+    tx.executeWithoutResult(status -> {
+      for (int i = 0; i < 5; i++) {
+        em.persist(new Member(prefix + i, 10 + i));
+      }
+    });
+  }
+
+  @AfterEach
+  public void tearDown() {
+    tx.executeWithoutResult(status ->
+        queryFactory.delete(member).where(member.username.startsWith(prefix)).execute());
+  }
+
+  @Test
+  public void rejectsUnknownFieldWithBadRequest() throws Exception {
+    mvc.perform(get("/v1/members").param("fields", "username,password"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void rejectsMalformedCursorWithBadRequest() throws Exception {
+    mvc.perform(get("/v4/members").param("after", "not-a-cursor"))
+        .andExpect(status().isBadRequest());
+    mvc.perform(get("/v4/members").param("size", "0"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void capsCursorPageSize() throws Exception {
+    perform(get("/v4/members")
+        .param("usernameStartsWith", prefix)
+        .param("size", "1000"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content.length()").value(2))
+        .andExpect(jsonPath("$.hasNext").value(true));
+  }
+
+  @Test
+  public void streamedPageMatchesPage() throws Exception {
+    for (int page = 0; page < 3; page++) {
+      String expected = perform(get("/v3/members")
+          .param("usernameStartsWith", prefix)
+          .param("page", String.valueOf(page))
+          .param("size", "2"))
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString();
+      String streamed = mvc.perform(get("/v3/members")
+          .param("stream", "")
+          .param("usernameStartsWith", prefix)
+          .param("page", String.valueOf(page))
+          .param("size", "2"))
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString();
+
+      assertThat(objectMapper.readTree(streamed)).as("page %d", page)
+          .isEqualTo(objectMapper.readTree(expected));
+    }
+  }
+
+  @Test
+  public void totalElementsSkipsCountLikePageableExecutionUtils() {
+    LongSupplier noCount = () -> {
+      throw new AssertionError("count query must be skipped");
+    };
+
+    // 첫 페이지가 다 차지 않았다
+    assertThat(MemberController.totalElements(PageRequest.of(0, 10), 3, noCount)).isEqualTo(3);
+    // 마지막 페이지가 다 차지 않았다
+    assertThat(MemberController.totalElements(PageRequest.of(2, 10), 4, noCount)).isEqualTo(24);
+    // 페이지가 다 찼거나 빈 중간 이후 페이지는 센다
+    assertThat(MemberController.totalElements(PageRequest.of(0, 10), 10, () -> 42)).isEqualTo(42);
+    assertThat(MemberController.totalElements(PageRequest.of(1, 10), 10, () -> 42)).isEqualTo(42);
+    assertThat(MemberController.totalElements(PageRequest.of(5, 10), 0, () -> 42)).isEqualTo(42);
+  }
+
+  private ResultActions perform(MockHttpServletRequestBuilder builder) throws Exception {
+    MvcResult result = mvc.perform(builder)
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    return mvc.perform(asyncDispatch(result));
+  }
+}
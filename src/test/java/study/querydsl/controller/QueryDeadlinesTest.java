@@ -0,0 +1,112 @@
+package study.querydsl.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.QueryTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import study.querydsl.repository.support.ConcurrencyLimitExceededException;
+import study.querydsl.repository.support.ConcurrencyLimitProperties;
+import study.querydsl.repository.support.ConcurrencyLimiter;
+import study.querydsl.repository.support.QueryDeadline;
+
+class QueryDeadlinesTest {
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  QueryDeadlines deadlines = new QueryDeadlines(new QueryDeadlineProperties(), registry,
+      new ConcurrencyLimiter(new ConcurrencyLimitProperties(), registry), 10);
+
+  @AfterEach
+  public void shutdown() {
+    deadlines.destroy();
+  }
+
+  @Test
+  public void bindsDeadlineWhileStreaming() throws IOException {
+    deadlines.stream("export", () ->
+        assertThat(QueryDeadline.current().getName()).isEqualTo("export"));
+
+    assertThat(QueryDeadline.current()).isNull();
+  }
+
+  @Test
+  public void countsClientAbortAsCancelled() {
+    assertThatThrownBy(() -> deadlines.stream("export", () -> {
+      throw new UncheckedIOException(new IOException("Broken pipe"));
+    })).isInstanceOf(UncheckedIOException.class);
+
+    assertThat(count("export", "cancelled")).isEqualTo(1);
+    assertThat(registry.find("query.deadline").tag("outcome", "timeout").counter()).isNull();
+  }
+
+  @Test
+  public void countsStatementTimeout() {
+    assertThatThrownBy(() -> deadlines.stream("export", () -> {
+      throw new QueryTimeoutException("timed out");
+    })).isInstanceOf(QueryTimeoutException.class);
+
+    assertThat(count("export", "timeout")).isEqualTo(1);
+  }
+
+  @Test
+  public void rejectsAsyncQueriesWhenExecutorIsFull() throws Exception {
+    QueryDeadlineProperties properties = new QueryDeadlineProperties();
+    properties.setPoolSize(1);
+    properties.setQueueCapacity(1);
+    QueryDeadlines bounded = new QueryDeadlines(properties, registry,
+        new ConcurrencyLimiter(new ConcurrencyLimitProperties(), registry), 10);
+    CountDownLatch finish = new CountDownLatch(1);
+    try {
+      AsyncTaskExecutor executor = bounded.async("v1-members", () -> "ok").getExecutor();
+      executor.submit(() -> finish.await(5, TimeUnit.SECONDS));
+      executor.submit(() -> finish.await(5, TimeUnit.SECONDS));
+
+      assertThatThrownBy(() -> executor.submit(() -> "ok"))
+          .hasCauseInstanceOf(AsyncQueryRejectedException.class);
+      assertThat(registry.get("query.async.rejected").counter().count()).isEqualTo(1);
+    } finally {
+      finish.countDown();
+      bounded.destroy();
+    }
+  }
+
+  @Test
+  public void holdsPermitWhileAsyncQueryWaitsForExecutor() throws Exception {
+    ConcurrencyLimitProperties limits = new ConcurrencyLimitProperties();
+    limits.setInitialLimit(2);
+    limits.setMinLimit(1);
+    limits.setMaxQueue(0);
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(limits, registry);
+    QueryDeadlines limited = new QueryDeadlines(new QueryDeadlineProperties(), registry, limiter,
+        10);
+    try {
+      WebAsyncTask<String> first = limited.async("v1-members", () -> "ok");
+      limited.async("v1-members", () -> "ok");
+
+      assertThat(limiter.getInFlight()).isEqualTo(2);
+      assertThatThrownBy(() -> limited.async("v1-members", () -> "ok"))
+          .isInstanceOf(ConcurrencyLimitExceededException.class);
+
+      assertThat(first.getCallable().call()).isEqualTo("ok");
+      assertThat(limiter.getInFlight()).isEqualTo(1);
+    } finally {
+      limited.destroy();
+    }
+  }
+
+  private double count(String endpoint, String outcome) {
+    return registry.get("query.deadline")
+        .tag("endpoint", endpoint)
+        .tag("outcome", outcome)
+        .counter()
+        .count();
+  }
+}
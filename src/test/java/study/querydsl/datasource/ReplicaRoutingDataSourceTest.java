@@ -0,0 +1,124 @@
+package study.querydsl.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReplicaRoutingDataSourceTest {
+
+  DriverManagerDataSource primary;
+  ReplicaPool replicaPool;
+  ReplicaProperties properties = new ReplicaProperties();
+
+  @BeforeEach
+  public void setUp() throws SQLException {
+    primary = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1", "sa", "");
+    initialize(primary, "primary");
+
+    ReplicaProperties.Node node = new ReplicaProperties.Node();
+    node.setName("replica1");
+    node.setUrl("jdbc:h2:mem:replica1;DB_CLOSE_DELAY=-1");
+    node.setUsername("sa");
+    node.setPassword("");
+    properties.getNodes().add(node);
+    properties.setMaxLag(Duration.ofSeconds(5));
+    replicaPool = ReplicaPool.create(properties);
+    initialize(replicaPool.getReplicas().get(0).getDataSource(), "replica1");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    replicaPool.destroy();
+  }
+
+  @Test
+  public void routesReadOnlyToReplica() throws SQLException {
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicaPool);
+
+    assertThat(whoami(routing)).isEqualTo("primary");
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertThat(whoami(routing)).isEqualTo("replica1");
+  }
+
+  @Test
+  public void fallsBackToPrimaryWhenReplicaLags() throws SQLException {
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicaPool);
+    properties.setLagQuery("select 10");
+    new ReplicaLagMonitor(replicaPool, properties).check();
+
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    assertThat(whoami(routing)).isEqualTo("primary");
+
+    properties.setLagQuery("select 1");
+    new ReplicaLagMonitor(replicaPool, properties).check();
+    assertThat(whoami(routing)).isEqualTo("replica1");
+  }
+
+  @Test
+  public void lagMonitorRequiresLagQuery() {
+    assertThatThrownBy(() -> new ReplicaLagMonitor(replicaPool, properties))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("lag-query");
+  }
+
+  @Test
+  public void readsRecentChangesFromPrimary() {
+    DataSource routing = new LazyConnectionDataSourceProxy(
+        new ReplicaRoutingDataSource(primary, replicaPool));
+    DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+    PrimaryReads primaryReads = new PrimaryReads(transactionManager, true, Duration.ofSeconds(5));
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+
+    readOnly.executeWithoutResult(status -> {
+      assertThat(primaryReads.readSince(null, () -> whoamiUnchecked(routing)))
+          .isEqualTo("replica1");
+      assertThat(primaryReads.readSince(System.nanoTime(), () -> whoamiUnchecked(routing)))
+          .isEqualTo("primary");
+      long longAgo = System.nanoTime() - Duration.ofMinutes(1).toNanos();
+      assertThat(primaryReads.readSince(longAgo, () -> whoamiUnchecked(routing)))
+          .isEqualTo("replica1");
+    });
+  }
+
+  private static void initialize(DataSource dataSource, String name) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("create table if not exists whoami (name varchar(20))");
+      statement.execute("delete from whoami");
+      statement.execute("insert into whoami values ('" + name + "')");
+    }
+  }
+
+  private static String whoami(DataSource dataSource) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("select name from whoami")) {
+      rs.next();
+      return rs.getString(1);
+    }
+  }
+
+  private static String whoamiUnchecked(DataSource dataSource) {
+    try {
+      return whoami(dataSource);
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * querydsl.n-plus-one.batch-fetch-size 를 켜면 팀 프록시들이 IN 쿼리 하나로 초기화된다.
+ */
+@SpringBootTest(properties = "querydsl.n-plus-one.batch-fetch-size=10")
+@Transactional
+class LazyLoadBatchFetchTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired MemberTestRepository memberTestRepository;
+
+  @Test
+  public void loadsTeamsInOneBatch() {
+    for (int i = 0; i < 6; i++) {
+      Team team = new Team("team" + i);
+      em.persist(team);
+      em.persist(new Member("member" + i, i, team));
+    }
+    em.flush();
+    em.clear();
+
+    Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class)
+        .getStatistics();
+    statistics.clear();
+    statistics.setStatisticsEnabled(true);
+    try {
+      List<Member> members = memberTestRepository.basicSelect();
+      members.forEach(m -> m.getTeam().getName());
+
+      assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    } finally {
+      statistics.setStatisticsEnabled(false);
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.LazyLoadDetector;
+
+@SpringBootTest
+@Transactional
+class LazyLoadDetectorTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired LazyLoadDetector lazyLoadDetector;
+  @Autowired MemberTestRepository memberTestRepository;
+
+  @Test
+  public void reportsLazyTeamLoads() {
+    for (int i = 0; i < 6; i++) {
+      Team team = new Team("team" + i);
+      em.persist(team);
+      em.persist(new Member("member" + i, i, team));
+    }
+    em.flush();
+    em.clear();
+
+    lazyLoadDetector.start();
+    List<Member> members = memberTestRepository.basicSelect();
+    members.forEach(m -> m.getTeam().getName());
+    LazyLoadDetector.Report report = lazyLoadDetector.stop();
+
+    assertThat(report.getLazyLoads()).isEqualTo(6);
+    assertThat(report.getSuspects()).hasSize(1);
+    assertThat(report.getSuspects().get(0))
+        .startsWith("6 lazy loads of " + Team.class.getName() + " at ")
+        .contains(LazyLoadDetectorTest.class.getName() + ".lambda$reportsLazyTeamLoads$");
+  }
+}
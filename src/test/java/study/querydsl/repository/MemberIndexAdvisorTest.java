@@ -0,0 +1,51 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.repository.MemberSearchQueryCache.AGE_GOE;
+import static study.querydsl.repository.MemberSearchQueryCache.TEAM_NAME;
+import static study.querydsl.repository.MemberSearchQueryCache.USERNAME;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import study.querydsl.repository.MemberIndexAdvisor.ShapeReport;
+
+class MemberIndexAdvisorTest {
+
+  MemberIndexAdvisor advisor = new MemberIndexAdvisor(2, Duration.ofMillis(1));
+
+  @Test
+  public void suggestsIndexForUncoveredSlowShape() {
+    record(USERNAME | AGE_GOE, 4, Duration.ofMillis(10));
+    record(TEAM_NAME | AGE_GOE, 3, Duration.ofMillis(10));
+    record(AGE_GOE, 2, Duration.ofMillis(10));
+
+    List<ShapeReport> reports = advisor.report();
+
+    assertThat(reports).extracting("predicates").containsExactly(
+        List.of("username", "ageGoe"), List.of("teamName", "ageGoe"), List.of("ageGoe"));
+    assertThat(reports).extracting("suggestedIndex").containsExactly(
+        "create index idx_member_username_age on member (username, age)", null, null);
+    assertThat(reports.get(0).getMeanMillis()).isEqualTo(10.0);
+  }
+
+  @Test
+  public void ignoresRareOrFastShapes() {
+    record(USERNAME | TEAM_NAME, 1, Duration.ofMillis(10));
+    record(USERNAME | AGE_GOE, 5, Duration.ofNanos(100));
+
+    assertThat(advisor.report()).extracting("suggestedIndex").containsOnlyNulls();
+  }
+
+  @Test
+  public void indexColumnsPutRangeLast() {
+    assertThat(MemberIndexAdvisor.indexColumns(AGE_GOE | TEAM_NAME | USERNAME))
+        .containsExactly("username", "team_id", "age");
+  }
+
+  private void record(int shape, int times, Duration elapsed) {
+    for (int i = 0; i < times; i++) {
+      advisor.record(shape, elapsed.toNanos());
+    }
+  }
+}
@@ -2,12 +2,17 @@ package study.querydsl.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.List;
 import javax.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberColumns;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -97,4 +102,115 @@ class MemberJpaRepositoryTest {
         memberJpaRepository.search(condition);
     assertThat(result).extracting("username").containsExactly("member4");
   }
-}
\ No newline at end of file
+
+  @Test
+  public void streamSearchTest() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+
+    List<MemberTeamDto> result = new ArrayList<>();
+    long rows = memberJpaRepository.streamSearch(condition, result::add);
+
+    assertThat(rows).isEqualTo(2);
+    assertThat(result).extracting("username").containsExactly("member3", "member4");
+  }
+
+  @Test
+  public void searchWithFieldsTest() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamB));
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+
+    List<MemberTeamDto> result =
+        memberJpaRepository.search(condition, MemberField.parse("username,age"));
+
+    assertThat(result).hasSize(1);
+    MemberTeamDto dto = result.get(0);
+    assertThat(dto.getUsername()).isEqualTo("member2");
+    assertThat(dto.getAge()).isEqualTo(20);
+    assertThat(dto.getMemberId()).isNull();
+    assertThat(dto.getTeamName()).isNull();
+  }
+
+  @Test
+  public void searchColumnsTest() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member1", 20, teamA));
+    em.persist(new Member("member2", 30));
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(15);
+
+    MemberColumns result = memberJpaRepository.searchColumns(condition);
+
+    assertThat(result.size()).isEqualTo(2);
+    assertThat(result.ages()).containsExactlyInAnyOrder(20, 30);
+    assertThat(result.teamIds()).containsExactlyInAnyOrder(teamA.getId(), MemberColumns.NO_TEAM);
+    assertThat(result.usernameCardinality()).isEqualTo(2);
+    assertThat(result.teamNameCardinality()).isEqualTo(1);
+  }
+
+  @Test
+  public void streamSearchPageTest() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    for (int i = 0; i < 5; i++) {
+      em.persist(new Member("member" + i, i * 10, teamA));
+    }
+
+    List<MemberTeamDto> result = new ArrayList<>();
+    long rows = memberJpaRepository.streamSearch(new MemberSearchCondition(), 2, 2, result::add);
+
+    assertThat(rows).isEqualTo(2);
+    assertThat(memberJpaRepository.count(new MemberSearchCondition())).isEqualTo(5);
+  }
+
+  @Test
+  public void findAllByIdTest() {
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      Member member = new Member("member" + i, i);
+      em.persist(member);
+      ids.add(member.getId());
+    }
+    em.flush();
+    em.clear();
+    Member managed = em.find(Member.class, ids.get(2));
+
+    Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class)
+        .getStatistics();
+    statistics.clear();
+    statistics.setStatisticsEnabled(true);
+    List<Member> result;
+    try {
+      result = memberJpaRepository.findAllById(
+          List.of(ids.get(4), ids.get(2), -1L, ids.get(0), ids.get(4)));
+      // 영속성 컨텍스트에 있는 ids.get(2) 를 빼고 IN 쿼리 한 번
+      assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+      memberJpaRepository.findAllById(List.of(ids.get(2), ids.get(4)));
+      assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    } finally {
+      statistics.setStatisticsEnabled(false);
+    }
+
+    assertThat(result).extracting("username")
+        .containsExactly("member4", "member2", "member0", "member4");
+    assertThat(result.get(1)).isSameAs(managed);
+    assertThat(result.get(0)).isSameAs(result.get(3));
+  }
+}
@@ -3,6 +3,7 @@ package study.querydsl.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.List;
+import java.util.Map;
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +11,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.CountMode;
+import study.querydsl.dto.CursorSlice;
+import study.querydsl.dto.EstimatedPage;
+import study.querydsl.dto.MemberField;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -85,6 +90,119 @@ class MemberRepositoryTest {
     assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
   }
 
+  @Test
+  public void searchPageSimpleTotalAcrossPages() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    for (int i = 0; i < 7; i++) {
+      em.persist(new Member("member" + i, 10 + i, teamA));
+    }
+    em.persist(new Member("other", 50, teamB));
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+
+    Page<MemberTeamDto> first = memberRepository.searchPageSimple(condition, PageRequest.of(0, 3));
+    Page<MemberTeamDto> middle = memberRepository.searchPageSimple(condition, PageRequest.of(1, 3));
+    Page<MemberTeamDto> last = memberRepository.searchPageSimple(condition, PageRequest.of(2, 3));
+
+    assertThat(first.getTotalElements()).isEqualTo(7);
+    assertThat(first.getTotalPages()).isEqualTo(3);
+    assertThat(middle.getTotalElements()).isEqualTo(7);
+    assertThat(middle.getContent()).extracting("username")
+        .containsExactly("member3", "member4", "member5");
+    assertThat(last.getTotalElements()).isEqualTo(7);
+    assertThat(last.getContent()).extracting("username").containsExactly("member6");
+    assertThat(last.isLast()).isTrue();
+  }
+
+  @Test
+  public void searchPageComplexWithCountMode() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    for (int i = 0; i < 5; i++) {
+      em.persist(new Member("member" + i, 10 + i, teamA));
+    }
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    EstimatedPage<MemberTeamDto> result = memberRepository.searchPageComplex(condition,
+        PageRequest.of(0, 3), CountMode.ESTIMATE);
+
+    assertThat(result.getContent()).hasSize(3);
+    assertThat(result.getTotalElements()).isEqualTo(5);
+    assertThat(result.isTotalExact()).isTrue();
+  }
+
+  @Test
+  public void searchPageWithFieldsAndCountMode() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    for (int i = 0; i < 5; i++) {
+      em.persist(new Member("member" + i, 10 + i, teamA));
+    }
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    EstimatedPage<MemberTeamDto> result = memberRepository.searchPage(condition,
+        PageRequest.of(0, 3), MemberField.parse("username"), CountMode.ESTIMATE);
+
+    assertThat(result.getTotalElements()).isEqualTo(5);
+    assertThat(result.isTotalExact()).isTrue();
+    EstimatedPage<?> selected = result.map(
+        dto -> MemberField.select(dto, MemberField.parse("username")));
+    assertThat(selected.isTotalExact()).isTrue();
+    assertThat(selected.getContent().get(0)).isEqualTo(Map.of("username", "member0"));
+  }
+
+  @Test
+  public void searchByUsernameContainsAndStartsWith() {
+    em.persist(new Member("alice", 10));
+    em.persist(new Member("alina", 20));
+    em.persist(new Member("malice", 30));
+    em.persist(new Member("bob_1", 40));
+
+    MemberSearchCondition contains = new MemberSearchCondition();
+    contains.setUsernameContains("lic");
+    assertThat(memberRepository.search(contains)).extracting("username")
+        .containsExactlyInAnyOrder("alice", "malice");
+
+    MemberSearchCondition startsWith = new MemberSearchCondition();
+    startsWith.setUsernameStartsWith("ali");
+    assertThat(memberRepository.searchPageSimple(startsWith, PageRequest.of(0, 10)).getContent())
+        .extracting("username").containsExactlyInAnyOrder("alice", "alina");
+
+    MemberSearchCondition wildcard = new MemberSearchCondition();
+    wildcard.setUsernameContains("b_");
+    assertThat(memberRepository.search(wildcard)).extracting("username")
+        .containsExactly("bob_1");
+  }
+
+  @Test
+  public void searchByCursor() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    Member member1 = new Member("member1", 10, teamA);
+    Member member2 = new Member("member2", 20, teamA);
+    Member member3 = new Member("member3", 30, teamB);
+    Member member4 = new Member("member4", 40, teamB);
+    em.persist(member1);
+    em.persist(member2);
+    em.persist(member3);
+    em.persist(member4);
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    CursorSlice<MemberTeamDto> first = memberRepository.searchByCursor(condition, null, 3);
+    assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+    assertThat(first.isHasNext()).isTrue();
+
+    CursorSlice<MemberTeamDto> next = memberRepository.searchByCursor(condition, first.getNextCursor(), 3);
+    assertThat(next.getContent()).extracting("username").containsExactly("member4");
+    assertThat(next.isHasNext()).isFalse();
+    assertThat(next.getNextCursor()).isNull();
+  }
+
   @Test
   public void querydslPredicateExecutorTest() {
     Team teamA = new Team("teamA");
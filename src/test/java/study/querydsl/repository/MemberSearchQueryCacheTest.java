@@ -0,0 +1,58 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+class MemberSearchQueryCacheTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired MemberSearchQueryCache queryCache;
+
+  @Test
+  public void sameShapeReusesTemplate() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+
+    MemberSearchCondition first = new MemberSearchCondition();
+    first.setUsername("member1");
+    first.setAgeGoe(5);
+    MemberSearchCondition second = new MemberSearchCondition();
+    second.setUsername("member2");
+    second.setAgeGoe(15);
+
+    queryCache.fetch(first);
+    long hits = queryCache.getHits();
+    List<MemberTeamDto> result = queryCache.fetch(second);
+
+    assertThat(queryCache.getHits()).isEqualTo(hits + 1);
+    assertThat(result).extracting("username").containsExactly("member2");
+    assertThat(result).extracting("teamName").containsExactly("teamA");
+  }
+
+  @Test
+  public void shapeOf() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername("");
+    condition.setTeamName("teamA");
+    condition.setAgeLoe(40);
+
+    assertThat(MemberSearchQueryCache.shapeOf(condition))
+        .isEqualTo(MemberSearchQueryCache.TEAM_NAME | MemberSearchQueryCache.AGE_LOE);
+  }
+}
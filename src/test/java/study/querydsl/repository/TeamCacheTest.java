@@ -0,0 +1,73 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import study.querydsl.datasource.PrimaryReads;
+import study.querydsl.entity.Hello;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.TeamCache.TeamInfo;
+import study.querydsl.repository.support.EntityChangeNotifier;
+
+class TeamCacheTest {
+
+  EntityChangeNotifier notifier = new EntityChangeNotifier();
+  AtomicLong loads = new AtomicLong();
+
+  @Test
+  public void resolvesNamesAndIds() {
+    TeamCache cache = new TeamCache(this::load, notifier, PrimaryReads.NONE, true, Duration.ofMinutes(1), 10);
+
+    TeamCache.Snapshot teams = cache.snapshot();
+
+    assertThat(teams.idsByName("teamA")).containsExactly(1L, 3L);
+    assertThat(teams.idsByName("teamC")).isEmpty();
+    assertThat(teams.nameOf(2L)).isEqualTo("teamB");
+    assertThat(teams.nameOf(null)).isNull();
+  }
+
+  @Test
+  public void invalidatedByTeamChangeOnly() {
+    TeamCache cache = new TeamCache(this::load, notifier, PrimaryReads.NONE, true, Duration.ofMinutes(1), 10);
+    cache.snapshot();
+
+    notifier.notifyChanged(Hello.class);
+    notifier.notifyChanged(Member.class);
+    cache.snapshot();
+    assertThat(loads.get()).isEqualTo(1);
+
+    notifier.notifyChanged(Team.class);
+    cache.snapshot();
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void expiresAfterTtl() {
+    TeamCache cache = new TeamCache(this::load, notifier, PrimaryReads.NONE, true, Duration.ZERO, 10);
+    cache.snapshot();
+    cache.snapshot();
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void unusableWhenDisabledOrTooLarge() {
+    assertThat(new TeamCache(this::load, notifier, PrimaryReads.NONE, false, Duration.ofMinutes(1), 10).snapshot())
+        .isNull();
+    assertThat(new TeamCache(this::load, notifier, PrimaryReads.NONE, true, Duration.ofMinutes(1), 2).snapshot())
+        .isNull();
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  private List<TeamInfo> load() {
+    loads.incrementAndGet();
+    return List.of(
+        new TeamInfo(1L, "teamA"),
+        new TeamInfo(2L, "teamB"),
+        new TeamInfo(3L, "teamA"));
+  }
+}
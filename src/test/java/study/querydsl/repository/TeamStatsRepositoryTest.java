@@ -0,0 +1,118 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamAgeStats;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.entity.TeamStats;
+
+@SpringBootTest
+@Transactional
+class TeamStatsRepositoryTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired JPAQueryFactory queryFactory;
+  @Autowired TeamStatsRepository teamStatsRepository;
+  @Autowired TeamStatsReconciler reconciler;
+
+  Team teamA;
+  Team teamB;
+  Member member2;
+  Member member4;
+
+  @BeforeEach
+  public void before() {
+    reconciler.reconcile();
+    teamA = new Team("teamA");
+    teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    member2 = new Member("member2", 20, teamA);
+    member4 = new Member("member4", 40, teamB);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(member2);
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(member4);
+  }
+
+  @Test
+  public void maintainedOnInsert() {
+    List<TeamAgeStats> result = teamStatsRepository.findAll();
+
+    assertThat(reconciler.isDirty()).isFalse();
+    assertThat(result).extracting("teamName").containsExactly("teamA", "teamB");
+    assertThat(result).extracting("memberCount").containsExactly(2L, 2L);
+    assertThat(result).extracting("avgAge").containsExactly(15.0, 35.0);
+    assertThat(result).extracting("minAge").containsExactly(10, 30);
+    assertThat(result).extracting("maxAge").containsExactly(20, 40);
+  }
+
+  @Test
+  public void maintainedOnChangeTeamAndDelete() {
+    em.flush();
+    member2.changeTeam(teamB);
+    em.remove(member4);
+
+    List<TeamAgeStats> result = teamStatsRepository.findAll();
+
+    assertThat(result).extracting("memberCount").containsExactly(1L, 2L);
+    assertThat(result).extracting("ageSum").containsExactly(10L, 50L);
+    assertThat(result).extracting("minAge").containsExactly(10, 20);
+    assertThat(result).extracting("maxAge").containsExactly(10, 30);
+    assertThat(teamStatsRepository.countByTeamName("teamB")).isEqualTo(2);
+  }
+
+  @Test
+  public void statsRowCreatedWithTeam() {
+    Team teamC = new Team("teamC");
+    em.persist(teamC);
+    em.flush();
+    assertThat(em.find(TeamStats.class, teamC.getId()).getMemberCount()).isZero();
+
+    em.persist(new Member("member5", 50, teamC));
+    em.flush();
+    em.clear();
+
+    TeamStats stats = em.find(TeamStats.class, teamC.getId());
+    assertThat(stats.getMemberCount()).isEqualTo(1);
+    assertThat(stats.getMinAge()).isEqualTo(50);
+    assertThat(stats.getMaxAge()).isEqualTo(50);
+  }
+
+  @Test
+  public void detachedUpdateFallsBackToMembers() {
+    em.flush();
+    em.clear();
+    assertThat(reconciler.isDirty()).isFalse();
+
+    member2.changeTeam(em.find(Team.class, teamB.getId()));
+    em.unwrap(Session.class).update(member2);
+    em.flush();
+
+    assertThat(reconciler.isDirty()).isTrue();
+    assertThat(teamStatsRepository.findAll()).extracting("memberCount").containsExactly(1L, 3L);
+  }
+
+  @Test
+  public void bulkUpdateFallsBackToMembers() {
+    em.flush();
+    queryFactory.update(member).set(member.age, member.age.add(1)).execute();
+    em.clear();
+
+    assertThat(reconciler.isDirty()).isTrue();
+    assertThat(teamStatsRepository.findAll()).extracting("maxAge").containsExactly(21, 41);
+  }
+}
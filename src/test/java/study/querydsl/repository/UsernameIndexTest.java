@@ -0,0 +1,111 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+
+class UsernameIndexTest {
+
+  UsernameIndex index = new UsernameIndex(1000, 100);
+
+  @Test
+  public void findsCandidatesBySubstringAndPrefix() {
+    index.rebuild(Map.of(1L, "alice", 2L, "alina", 3L, "malice")::forEach);
+
+    assertThat(index.candidates(contains("lic"))).containsOnly(1L, 3L);
+    assertThat(index.candidates(startsWith("al"))).containsOnly(1L, 2L);
+    assertThat(index.candidates(contains("ice", "ma"))).containsOnly(3L);
+    assertThat(index.candidates(contains("xyz"))).isEmpty();
+  }
+
+  @Test
+  public void cannotNarrowShortSubstrings() {
+    index.rebuild(Map.of(1L, "alice")::forEach);
+
+    assertThat(index.candidates(contains("al"))).isNull();
+  }
+
+  @Test
+  public void appliesChangesOutsideTransactionImmediately() {
+    index.rebuild(Map.of(1L, "alice")::forEach);
+
+    index.onPersist(2L, "bob");
+    index.onUpdate(1L, "carol");
+    index.onRemove(2L, "bob");
+
+    assertThat(index.candidates(contains("bob"))).isEmpty();
+    assertThat(index.candidates(contains("lic"))).isEmpty();
+    assertThat(index.candidates(contains("aro"))).containsOnly(1L);
+    assertThat(index.status().getNames()).isEqualTo(1);
+  }
+
+  @Test
+  public void givesUpWhenPostingsExceedMaxCandidates() {
+    UsernameIndex narrow = new UsernameIndex(1000, 2);
+    narrow.rebuild(Map.of(1L, "alice", 2L, "malice", 3L, "slice")::forEach);
+
+    assertThat(narrow.candidates(contains("lic"))).isNull();
+    assertThat(narrow.candidates(contains("lic", "ali"))).containsOnly(1L);
+  }
+
+  @Test
+  public void disablesWhenOverBudget() {
+    UsernameIndex small = new UsernameIndex(5, 100);
+    small.rebuild(Map.of(1L, "alice", 2L, "bob")::forEach);
+
+    assertThat(small.status().isOverBudget()).isTrue();
+    assertThat(small.candidates(contains("lic"))).isNull();
+  }
+
+  @Test
+  public void ignoresUpdatesThatKeepTheName() {
+    UsernameIndex small = new UsernameIndex(12, 100);
+    small.rebuild(Map.of(1L, "alice")::forEach);
+
+    for (int i = 0; i < 10; i++) {
+      small.onUpdate(1L, "alice");
+    }
+
+    assertThat(small.status().getPostings()).isEqualTo(4);
+    assertThat(small.candidates(contains("lic"))).containsOnly(1L);
+  }
+
+  @Test
+  public void rebuildsWhenChangesExceedBudget() {
+    UsernameIndex small = new UsernameIndex(8, 100);
+    small.rebuild(Map.of(1L, "alice")::forEach);
+
+    small.onUpdate(1L, "carol");
+    small.onUpdate(1L, "alice");
+
+    assertThat(small.status().isStale()).isTrue();
+    assertThat(small.candidates(contains("lic"))).isNull();
+
+    small.rebuild(Map.of(1L, "alice")::forEach);
+
+    assertThat(small.status().isOverBudget()).isFalse();
+    assertThat(small.candidates(contains("lic"))).containsOnly(1L);
+  }
+
+  @Test
+  public void escapesLikeWildcards() {
+    assertThat(UsernameIndex.escapeLike("a_b%c!")).isEqualTo("a!_b!%c!!");
+  }
+
+  private static MemberSearchCondition contains(String value) {
+    return contains(value, null);
+  }
+
+  private static MemberSearchCondition contains(String value, String prefix) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsernameContains(value);
+    condition.setUsernameStartsWith(prefix);
+    return condition;
+  }
+
+  private static MemberSearchCondition startsWith(String prefix) {
+    return contains(null, prefix);
+  }
+}
@@ -0,0 +1,90 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.List;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.BulkJobCheckpoint;
+import study.querydsl.entity.Member;
+
+/**
+ * 청크마다 커밋되므로 테스트 트랜잭션 없이 실행하고 직접 정리한다. 공유 DB 이므로 이 테스트가 만든 행만 대상으로
+ * 하고 정리한다.
+ */
+@SpringBootTest
+class ChunkedBulkExecutorTest {
+
+  @Autowired EntityManager em;
+  @Autowired JPAQueryFactory queryFactory;
+  @Autowired PlatformTransactionManager transactionManager;
+
+  TransactionTemplate tx;
+  ChunkedBulkExecutor executor;
+  String prefix = "bulk-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+  BooleanExpression created = member.username.startsWith(prefix);
+
+  @BeforeEach
+  public void setUp() {
+    tx = new TransactionTemplate(transactionManager);
+    executor = new ChunkedBulkExecutor(queryFactory, em, transactionManager, 2, 0);
+    tx.executeWithoutResult(status -> {
+      for (int i = 0; i < 7; i++) {
+        em.persist(new Member(prefix + i, i));
+      }
+    });
+  }
+
+  @AfterEach
+  public void tearDown() {
+    tx.executeWithoutResult(status -> queryFactory.delete(member).where(created).execute());
+    executor.reset(prefix + "age-plus-one");
+    executor.reset(prefix + "delete-all");
+  }
+
+  @Test
+  public void updatesInChunks() {
+    BulkJobCheckpoint result = executor.update(prefix + "age-plus-one", member, member.id,
+        created.and(member.age.lt(5)), update -> update.set(member.age, member.age.add(100)));
+
+    assertThat(result.isCompleted()).isTrue();
+    assertThat(result.getRowsAffected()).isEqualTo(5);
+    assertThat(result.getChunks()).isEqualTo(3);
+    assertThat(ages()).containsExactly(5, 6, 100, 101, 102, 103, 104);
+  }
+
+  @Test
+  public void resumesFromCheckpoint() {
+    List<Long> ids = queryFactory.select(member.id).from(member).where(created)
+        .orderBy(member.id.asc()).fetch();
+    tx.executeWithoutResult(status -> {
+      BulkJobCheckpoint checkpoint =
+          new BulkJobCheckpoint(prefix + "delete-all", ids.get(0) - 1, ids.get(6));
+      checkpoint.advance(ids.get(3), 0);
+      em.persist(checkpoint);
+    });
+
+    BulkJobCheckpoint result = executor.delete(prefix + "delete-all", member, member.id, created);
+
+    assertThat(result.isCompleted()).isTrue();
+    assertThat(result.getRowsAffected()).isEqualTo(3);
+    assertThat(ages()).containsExactly(0, 1, 2, 3);
+    assertThat(executor.delete(prefix + "delete-all", member, member.id, created).getChunks())
+        .isEqualTo(result.getChunks());
+  }
+
+  private List<Integer> ages() {
+    return queryFactory.select(member.age).from(member).where(created)
+        .orderBy(member.age.asc()).fetch();
+  }
+}
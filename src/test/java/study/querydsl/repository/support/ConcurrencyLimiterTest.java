@@ -0,0 +1,205 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.QueryTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void decreasesLimitOnTimeoutAndIncreasesOnSuccess() throws Throwable {
+    ConcurrencyLimiter limiter = limiter(10, 0, Duration.ZERO);
+
+    assertThatThrownBy(() -> limiter.execute("search", () -> {
+      throw new QueryTimeoutException("timed out");
+    })).isInstanceOf(QueryTimeoutException.class);
+    assertThat(limiter.getLimit()).isEqualTo(9);
+
+    // 한도의 절반 이상을 쓰고 있을 때만 늘린다.
+    limiter.execute("search", () -> "ok");
+    assertThat(limiter.getLimit()).isEqualTo(9);
+    limiter.execute("search", () -> {
+      limiter.execute("nested", () -> "ok");
+      return "ok";
+    });
+    assertThat(limiter.getLimit()).isEqualTo(9);
+    assertThat(limiter.getInFlight()).isZero();
+
+    ConcurrencyLimiter saturated = limiter(1, 0, Duration.ZERO);
+    saturated.execute("search", () -> "ok");
+    saturated.execute("search", () -> "ok");
+    assertThat(saturated.getLimit()).isEqualTo(3);
+  }
+
+  @Test
+  public void backsOffOnceForCallsStartedBeforeTheLastBackoff() throws Exception {
+    ConcurrencyLimiter limiter = limiter(10, 0, Duration.ZERO);
+    CountDownLatch started = new CountDownLatch(2);
+    CountDownLatch finish = new CountDownLatch(1);
+    Future<Object> first = executor.submit(() -> timeOut(limiter, started, finish));
+    Future<Object> second = executor.submit(() -> timeOut(limiter, started, finish));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    finish.countDown();
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+
+    assertThat(limiter.getLimit()).isEqualTo(9);
+    assertThatThrownBy(() -> limiter.execute("search", () -> {
+      throw new QueryTimeoutException("timed out");
+    })).isInstanceOf(QueryTimeoutException.class);
+    assertThat(limiter.getLimit()).isEqualTo(8);
+  }
+
+  @Test
+  public void unsampledCallsDoNotChangeLimit() {
+    ConcurrencyLimiter limiter = limiter(10, 0, Duration.ZERO);
+
+    assertThatThrownBy(() -> limiter.executeUnsampled("export", () -> {
+      throw new QueryTimeoutException("timed out");
+    })).isInstanceOf(QueryTimeoutException.class);
+
+    assertThat(limiter.getLimit()).isEqualTo(10);
+    assertThat(limiter.getInFlight()).isZero();
+  }
+
+  @Test
+  public void permitIsReleasedOnceOnAnotherThread() throws Exception {
+    ConcurrencyLimiter limiter = limiter(10, 0, Duration.ZERO);
+    ConcurrencyLimiter.Permit permit = limiter.acquire("search");
+    assertThat(limiter.getInFlight()).isEqualTo(1);
+
+    Future<Object> running = executor.submit(() -> {
+      try {
+        return permit.execute(() -> "ok");
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+    permit.abandon(true);
+
+    assertThat(limiter.getInFlight()).isZero();
+    assertThat(limiter.getLimit()).isEqualTo(10);
+  }
+
+  @Test
+  public void abandonedPermitBacksOffOnlyWhenTimedOut() {
+    ConcurrencyLimiter limiter = limiter(10, 0, Duration.ZERO);
+
+    limiter.acquire("search").abandon(false);
+    assertThat(limiter.getLimit()).isEqualTo(10);
+    limiter.acquire("search").abandon(true);
+    assertThat(limiter.getLimit()).isEqualTo(9);
+    assertThat(limiter.getInFlight()).isZero();
+  }
+
+  @Test
+  public void rejectsWhenQueueIsFull() throws Exception {
+    ConcurrencyLimiter limiter = limiter(1, 0, Duration.ZERO);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    Future<Object> running = executor.submit(() -> execute(limiter, started, finish));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThatThrownBy(() -> limiter.execute("search", () -> "ok"))
+        .isInstanceOf(ConcurrencyLimitExceededException.class);
+    finish.countDown();
+    running.get(5, TimeUnit.SECONDS);
+
+    assertThat(registry.get("query.concurrency.rejected").tag("reason", "queue-full").counter()
+        .count()).isEqualTo(1);
+  }
+
+  @Test
+  public void queuedCallRunsWhenPermitIsReleased() throws Exception {
+    ConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    Future<Object> running = executor.submit(() -> execute(limiter, started, finish));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    Future<Object> queued = executor.submit(() -> execute(limiter, new CountDownLatch(1),
+        new CountDownLatch(0)));
+    while (limiter.getQueued() == 0) {
+      Thread.sleep(10);
+    }
+    finish.countDown();
+
+    assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+    assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+    assertThat(limiter.getQueued()).isZero();
+  }
+
+  @Test
+  public void rejectsWhenQueueWaitExpires() throws Exception {
+    ConcurrencyLimiter limiter = limiter(1, 1, Duration.ofMillis(10));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch finish = new CountDownLatch(1);
+    Future<Object> running = executor.submit(() -> execute(limiter, started, finish));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    assertThatThrownBy(() -> limiter.execute("search", () -> "ok"))
+        .isInstanceOf(ConcurrencyLimitExceededException.class)
+        .hasMessageContaining("queue-timeout");
+    finish.countDown();
+    running.get(5, TimeUnit.SECONDS);
+  }
+
+  private ConcurrencyLimiter limiter(int limit, int maxQueue, Duration maxWait) {
+    ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+    properties.setInitialLimit(limit);
+    properties.setMinLimit(1);
+    properties.setMaxQueue(maxQueue);
+    properties.setMaxWait(maxWait);
+    properties.setLatencyThreshold(Duration.ofMinutes(1));
+    return new ConcurrencyLimiter(properties, registry);
+  }
+
+  private static Object timeOut(ConcurrencyLimiter limiter, CountDownLatch started,
+      CountDownLatch finish) {
+    try {
+      return limiter.execute("search", () -> {
+        started.countDown();
+        finish.await();
+        throw new QueryTimeoutException("timed out");
+      });
+    } catch (QueryTimeoutException e) {
+      return null;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Object execute(ConcurrencyLimiter limiter, CountDownLatch started,
+      CountDownLatch finish) throws Exception {
+    try {
+      return limiter.execute("search", () -> {
+        started.countDown();
+        finish.await();
+        return "ok";
+      });
+    } catch (Exception e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
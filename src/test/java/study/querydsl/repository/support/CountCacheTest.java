@@ -0,0 +1,71 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Hello;
+import study.querydsl.entity.Member;
+
+class CountCacheTest {
+
+  EntityChangeNotifier notifier = new EntityChangeNotifier();
+  AtomicLong loads = new AtomicLong();
+
+  @Test
+  public void cachesByNormalizedCondition() {
+    CountCache cache = new CountCache(Duration.ofMinutes(1), 10, notifier);
+    MemberSearchCondition blank = new MemberSearchCondition();
+    blank.setUsername("");
+
+    cache.get(new MemberSearchCondition().normalize(), this::load);
+    long count = cache.get(blank.normalize(), this::load);
+
+    assertThat(count).isEqualTo(1);
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidatedByMemberChange() {
+    CountCache cache = new CountCache(Duration.ofMinutes(1), 10, notifier);
+    cache.get("key", this::load);
+
+    notifier.notifyChanged(Hello.class);
+    cache.get("key", this::load);
+    assertThat(loads.get()).isEqualTo(1);
+
+    notifier.notifyChanged(Member.class);
+    cache.get("key", this::load);
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void expiresAfterTtl() {
+    CountCache cache = new CountCache(Duration.ZERO, 10, notifier);
+    cache.get("key", this::load);
+    cache.get("key", this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    CountCache cache = new CountCache(Duration.ofMinutes(1), 2, notifier);
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+    cache.get("a", this::load);
+    cache.get("c", this::load);
+    assertThat(cache.size()).isEqualTo(2);
+
+    cache.get("a", this::load);
+    assertThat(loads.get()).isEqualTo(3);
+    cache.get("b", this::load);
+    assertThat(loads.get()).isEqualTo(4);
+  }
+
+  private long load() {
+    return loads.incrementAndGet();
+  }
+}
@@ -0,0 +1,98 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.CountEstimator.CountEstimate;
+
+@SpringBootTest
+@Transactional
+class CountEstimatorTest {
+
+  // 통계를 읽지 못하게 해서 id 범위 크기(100)를 테이블 행 수로 쓰게 한다.
+  static final String NO_STATISTICS = "select row_count from no_such_table where name = ?";
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  JPAQueryFactory queryFactory;
+
+  @BeforeEach
+  public void before() {
+    for (int i = 0; i < 100; i++) {
+      em.persist(new Member("member" + i, i));
+    }
+    em.flush();
+  }
+
+  @Test
+  public void estimatesFromSampledIdRanges() {
+    CountEstimator estimator = new CountEstimator(em, queryFactory, 10, 4, 10, NO_STATISTICS);
+
+    CountEstimate estimate = estimator.count(member, member.id,
+        range -> countAgeGoe50(range), () -> countAgeGoe50(null));
+
+    assertThat(estimate.isExact()).isFalse();
+    assertThat(estimate.getTotal()).isEqualTo(50);
+  }
+
+  @Test
+  public void countsExactlyBelowThreshold() {
+    CountEstimator estimator = new CountEstimator(em, queryFactory, 1000, 4, 10, NO_STATISTICS);
+
+    CountEstimate estimate = estimator.count(member, member.id,
+        range -> countAgeGoe50(range), () -> countAgeGoe50(null));
+
+    assertThat(estimate.isExact()).isTrue();
+    assertThat(estimate.getTotal()).isEqualTo(50);
+  }
+
+  @Test
+  public void countsExactlyWhenSamplesCoverIdRange() {
+    CountEstimator estimator = new CountEstimator(em, queryFactory, 10, 4, 30, NO_STATISTICS);
+
+    CountEstimate estimate = estimator.count(member, member.id,
+        range -> countAgeGoe50(range), () -> countAgeGoe50(null));
+
+    assertThat(estimate.isExact()).isTrue();
+    assertThat(estimate.getTotal()).isEqualTo(50);
+  }
+
+  @Test
+  public void countsExactlyWhenEstimateIsBelowThreshold() {
+    CountEstimator estimator = new CountEstimator(em, queryFactory, 10, 4, 10, NO_STATISTICS);
+
+    // 나이 15~25 인 회원은 표본 구간 밖에만 있으므로 표본으로는 0 개로 추정된다.
+    CountEstimate estimate = estimator.count(member, member.id,
+        range -> countAgeBetween15And25(range), () -> countAgeBetween15And25(null));
+
+    assertThat(estimate.isExact()).isTrue();
+    assertThat(estimate.getTotal()).isEqualTo(11);
+  }
+
+  private long countAgeBetween15And25(Predicate range) {
+    return queryFactory
+        .select(member.count())
+        .from(member)
+        .where(member.age.between(15, 25), range)
+        .fetchOne();
+  }
+
+  private long countAgeGoe50(Predicate range) {
+    return queryFactory
+        .select(member.count())
+        .from(member)
+        .where(member.age.goe(50), range)
+        .fetchOne();
+  }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.junit.jupiter.api.Test;
+import study.querydsl.entity.Member;
+
+class CountQueriesTest {
+
+  @Test
+  public void removesOrderByAndUnreferencedLeftJoin() {
+    JPAQuery<Member> query = new JPAQuery<Member>()
+        .select(member)
+        .from(member)
+        .leftJoin(member.team, team).fetchJoin()
+        .where(member.age.goe(10))
+        .orderBy(member.age.desc());
+
+    QueryMetadata count = CountQueries.deriveMetadata(query.getMetadata());
+
+    assertThat(count.getJoins()).hasSize(1);
+    assertThat(count.getOrderBy()).isEmpty();
+    String jpql = toJpql(count);
+    assertThat(jpql).contains("count(member1)");
+    assertThat(jpql).doesNotContain("join", "order by");
+  }
+
+  @Test
+  public void keepsReferencedLeftJoinWithoutFetch() {
+    JPAQuery<Member> query = new JPAQuery<Member>()
+        .select(member)
+        .from(member)
+        .leftJoin(member.team, team).fetchJoin()
+        .where(team.name.eq("teamA"));
+
+    QueryMetadata count = CountQueries.deriveMetadata(query.getMetadata());
+
+    assertThat(count.getJoins()).hasSize(2);
+    String jpql = toJpql(count);
+    assertThat(jpql).contains("left join member1.team as team");
+    assertThat(jpql).doesNotContain("fetch");
+  }
+
+  @Test
+  public void keepsInnerJoin() {
+    JPAQuery<Member> query = new JPAQuery<Member>()
+        .select(member)
+        .from(member)
+        .join(member.team, team);
+
+    QueryMetadata count = CountQueries.deriveMetadata(query.getMetadata());
+
+    assertThat(count.getJoins()).hasSize(2);
+  }
+
+  @Test
+  public void countsDistinctSingleColumn() {
+    JPAQuery<String> query = new JPAQuery<Member>()
+        .select(team.name)
+        .distinct()
+        .from(member)
+        .leftJoin(member.team, team)
+        .orderBy(team.name.asc());
+
+    QueryMetadata count = CountQueries.deriveMetadata(query.getMetadata());
+
+    assertThat(count.getJoins()).hasSize(2);
+    assertThat(toJpql(count)).contains("count(distinct team.name)");
+  }
+
+  @Test
+  public void skipsDistinctMultipleColumns() {
+    JPAQuery<Tuple> query = new JPAQuery<Member>()
+        .select(member.username, member.age)
+        .distinct()
+        .from(member)
+        .join(member.team, team);
+
+    assertThat(CountQueries.deriveMetadata(query.getMetadata())).isNull();
+  }
+
+  @Test
+  public void skipsGroupBy() {
+    JPAQuery<Member> query = new JPAQuery<Member>()
+        .select(member)
+        .from(member)
+        .groupBy(member.age);
+
+    assertThat(CountQueries.deriveMetadata(query.getMetadata())).isNull();
+  }
+
+  private String toJpql(QueryMetadata metadata) {
+    return new JPAQuery<Long>(null, JPQLTemplates.DEFAULT, metadata).toString();
+  }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+class EntityChangeNotifierTest {
+
+  EntityChangeNotifier notifier = new EntityChangeNotifier();
+  List<Class<?>> changed = new ArrayList<>();
+  List<Class<?>> bulkChanged = new ArrayList<>();
+
+  @AfterEach
+  public void clearSynchronization() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void notifiesAgainAfterCompletion() {
+    notifier.subscribe(changed::add);
+    notifier.subscribeBulk(bulkChanged::add);
+    TransactionSynchronizationManager.initSynchronization();
+
+    notifier.notifyChanged(Team.class);
+    notifier.notifyBulkChanged(Member.class);
+    assertThat(changed).containsExactly(Team.class, Member.class);
+    assertThat(bulkChanged).containsExactly(Member.class);
+
+    complete();
+
+    assertThat(changed).containsExactly(Team.class, Member.class, Team.class, Member.class);
+    assertThat(bulkChanged).containsExactly(Member.class, Member.class);
+  }
+
+  private static void complete() {
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+  }
+}
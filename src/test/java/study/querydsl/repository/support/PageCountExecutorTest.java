@@ -0,0 +1,131 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class PageCountExecutorTest {
+
+  PageCountExecutor executor = new PageCountExecutor(mock(PlatformTransactionManager.class),
+      true, 1, 10, 10);
+  ExecutorService callers = Executors.newCachedThreadPool();
+
+  @AfterEach
+  public void shutdown() {
+    callers.shutdownNow();
+    executor.destroy();
+  }
+
+  @Test
+  public void countsOnSeparateThread() {
+    assertThat(countThreadOfFullPage()).startsWith("page-count-");
+  }
+
+  @Test
+  public void countsOnCallerThreadWhenCountHasNotStarted() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> busy = occupyCountThread(release);
+    AtomicReference<String> countThread = new AtomicReference<>();
+
+    Page<String> page = executor.getPage(PageRequest.of(0, 2), () -> List.of("a", "b"), () -> {
+      countThread.set(Thread.currentThread().getName());
+      return 10;
+    });
+    release.countDown();
+    busy.get(5, TimeUnit.SECONDS);
+
+    assertThat(page.getTotalElements()).isEqualTo(10);
+    assertThat(countThread.get()).isEqualTo(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void skipsCountOnShortFirstPage() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> busy = occupyCountThread(release);
+    AtomicBoolean counted = new AtomicBoolean();
+
+    Page<String> page = executor.getPage(PageRequest.of(0, 5), () -> List.of("a", "b"), () -> {
+      counted.set(true);
+      return 10;
+    });
+    release.countDown();
+    busy.get(5, TimeUnit.SECONDS);
+    // count 스레드가 하나뿐이므로 다음 count 가 시작됐으면 앞서 예약된 count 도 처리된 것이다.
+    countThreadOfFullPage();
+
+    assertThat(page.getTotalElements()).isEqualTo(2);
+    assertThat(counted).isFalse();
+  }
+
+  @Test
+  public void sequentialWhenDisabled() {
+    PageCountExecutor disabled = new PageCountExecutor(mock(PlatformTransactionManager.class),
+        false, 1, 1, 10);
+    AtomicReference<String> countThread = new AtomicReference<>();
+
+    disabled.getPage(PageRequest.of(0, 2), () -> List.of("a", "b"), () -> {
+      countThread.set(Thread.currentThread().getName());
+      return 10;
+    });
+    disabled.destroy();
+
+    assertThat(countThread.get()).isEqualTo(Thread.currentThread().getName());
+  }
+
+  /**
+   * count 가 시작된 뒤에 content 를 돌려줘서 count 가 count 스레드에서 실행되게 한다.
+   */
+  private String countThreadOfFullPage() {
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicReference<String> countThread = new AtomicReference<>();
+    Page<String> page = executor.getPage(PageRequest.of(0, 2), () -> {
+      await(started);
+      return List.of("a", "b");
+    }, () -> {
+      countThread.set(Thread.currentThread().getName());
+      started.countDown();
+      return 10;
+    });
+    assertThat(page.getTotalElements()).isEqualTo(10);
+    return countThread.get();
+  }
+
+  /**
+   * 하나뿐인 count 스레드를 release 될 때까지 붙잡아 둔다.
+   */
+  private Future<?> occupyCountThread(CountDownLatch release) throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    Future<?> busy = callers.submit(() -> executor.getPage(PageRequest.of(0, 1), () -> {
+      await(started);
+      return List.of("a");
+    }, () -> {
+      started.countDown();
+      await(release);
+      return 10;
+    }));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    return busy;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.time.Duration;
+import java.util.Map;
+import javax.persistence.QueryTimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class QueryDeadlineTest {
+
+  @Autowired
+  JPAQueryFactory queryFactory;
+
+  @Test
+  public void appliesRemainingTimeRoundedUpToSeconds() {
+    QueryDeadline deadline = QueryDeadline.after("test", Duration.ofMillis(2500));
+    try (QueryDeadline.Scope scope = deadline.bind()) {
+      Map<String, Object> hints = queryFactory.selectFrom(member).createQuery().getHints();
+      assertThat(((Number) hints.get(QueryDeadline.TIMEOUT_HINT)).longValue()).isEqualTo(3000);
+    }
+    assertThat(QueryDeadline.current()).isNull();
+  }
+
+  @Test
+  public void noHintWithoutDeadline() {
+    Map<String, Object> hints = queryFactory.selectFrom(member).createQuery().getHints();
+    assertThat(hints).doesNotContainKey(QueryDeadline.TIMEOUT_HINT);
+  }
+
+  @Test
+  public void cancelledDeadlineRejectsNewQueries() {
+    QueryDeadline deadline = QueryDeadline.after("test", Duration.ofSeconds(10));
+    try (QueryDeadline.Scope scope = deadline.bind()) {
+      queryFactory.selectFrom(member).fetch();
+      deadline.cancel();
+
+      assertThat(deadline.isCancelled()).isTrue();
+      assertThatThrownBy(() -> queryFactory.selectFrom(member).fetch())
+          .isInstanceOf(QueryTimeoutException.class);
+    }
+  }
+
+  @Test
+  public void nestedScopeRestoresOuterDeadline() {
+    QueryDeadline outer = QueryDeadline.after("outer", Duration.ofSeconds(10));
+    QueryDeadline inner = QueryDeadline.after("inner", Duration.ZERO);
+    try (QueryDeadline.Scope outerScope = outer.bind()) {
+      try (QueryDeadline.Scope innerScope = inner.bind()) {
+        assertThat(QueryDeadline.current()).isSameAs(inner);
+        assertThat(inner.remainingMillis()).isEqualTo(Long.MAX_VALUE);
+      }
+      assertThat(QueryDeadline.current()).isSameAs(outer);
+    }
+  }
+}
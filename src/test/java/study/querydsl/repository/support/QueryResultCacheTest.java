@@ -0,0 +1,66 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import study.querydsl.datasource.PrimaryReads;
+import study.querydsl.entity.Hello;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+class QueryResultCacheTest {
+
+  EntityChangeNotifier notifier = new EntityChangeNotifier();
+  AtomicLong loads = new AtomicLong();
+
+  @Test
+  public void invalidatesOnlyTaggedEntries() {
+    QueryResultCache cache = new QueryResultCache(Duration.ofMinutes(1), 10, 100, notifier,
+        PrimaryReads.NONE);
+    cache.get("members", Set.of(Member.class, Team.class), List::size, this::load);
+    cache.get("hellos", Set.of(Hello.class), List::size, this::load);
+
+    notifier.notifyChanged(Team.class);
+
+    assertThat(cache.size()).isEqualTo(1);
+    cache.get("hellos", Set.of(Hello.class), List::size, this::load);
+    assertThat(loads.get()).isEqualTo(2);
+    cache.get("members", Set.of(Member.class, Team.class), List::size, this::load);
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedByWeight() {
+    QueryResultCache cache = new QueryResultCache(Duration.ofMinutes(1), 10, 5, notifier,
+        PrimaryReads.NONE);
+    cache.get("a", Set.of(Member.class), List::size, this::load);
+    cache.get("b", Set.of(Member.class), List::size, this::load);
+    assertThat(cache.weight()).isEqualTo(4);
+
+    cache.get("a", Set.of(Member.class), List::size, this::load);
+    cache.get("c", Set.of(Member.class), List::size, this::load);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.weight()).isEqualTo(4);
+    cache.get("a", Set.of(Member.class), List::size, this::load);
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void expiresAfterTtl() {
+    QueryResultCache cache = new QueryResultCache(Duration.ZERO, 10, 100, notifier,
+        PrimaryReads.NONE);
+    cache.get("a", Set.of(Member.class), List::size, this::load);
+    cache.get("a", Set.of(Member.class), List::size, this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private List<Long> load() {
+    return List.of(loads.incrementAndGet(), 0L);
+  }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RepositoryMetricsTest {
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  RepositoryMetrics metrics = new RepositoryMetrics(registry);
+
+  @Test
+  public void recordsRowsAndStatements() {
+    metrics.record("MemberJpaRepository", "search", () -> {
+      JdbcStats.current().statementExecuted(1_000);
+      JdbcStats.current().statementExecuted(1_000);
+      return List.of("a", "b", "c");
+    });
+
+    assertThat(registry.get("repository.invocation").tag("method", "search").timer().count())
+        .isEqualTo(1);
+    assertThat(registry.get("repository.rows").summary().totalAmount()).isEqualTo(3);
+    assertThat(registry.get("repository.statements").summary().totalAmount()).isEqualTo(2);
+  }
+
+  @Test
+  public void recordsFailureOutcome() {
+    assertThatThrownBy(() -> metrics.record("MemberJpaRepository", "search", () -> {
+      throw new IllegalStateException();
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(registry.get("repository.invocation").tag("outcome", "IllegalStateException")
+        .timer().count()).isEqualTo(1);
+  }
+}
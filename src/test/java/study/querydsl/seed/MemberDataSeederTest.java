@@ -0,0 +1,59 @@
+package study.querydsl.seed;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.seed.SeedProperties.TeamDistribution;
+
+@SpringBootTest
+@Transactional
+class MemberDataSeederTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired MemberDataSeeder memberDataSeeder;
+
+  @Test
+  public void seed() {
+    SeedProperties properties = new SeedProperties();
+    properties.setTeams(3);
+    properties.setMembers(250);
+    properties.setBatchSize(100);
+    properties.setTeamDistribution(TeamDistribution.UNIFORM);
+
+    long seeded = memberDataSeeder.seed(properties);
+
+    assertThat(seeded).isEqualTo(250);
+    Long members = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+    assertThat(members).isEqualTo(250);
+    Long teams = em.createQuery("select count(t) from Team t", Long.class).getSingleResult();
+    assertThat(teams).isEqualTo(3);
+  }
+
+  @Test
+  public void seededIdsDoNotCollideWithPersist() {
+    SeedProperties properties = new SeedProperties();
+    properties.setMembers(120);
+    memberDataSeeder.seed(properties);
+
+    Member member = new Member("persisted", 10);
+    em.persist(member);
+    em.flush();
+
+    Long members = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+    assertThat(members).isEqualTo(121);
+  }
+
+  @Test
+  public void teamName() {
+    assertThat(MemberDataSeeder.teamName(0)).isEqualTo("teamA");
+    assertThat(MemberDataSeeder.teamName(1)).isEqualTo("teamB");
+    assertThat(MemberDataSeeder.teamName(30)).isEqualTo("team30");
+  }
+}